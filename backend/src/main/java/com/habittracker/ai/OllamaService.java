@@ -2,20 +2,51 @@ package com.habittracker.ai;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.handler.timeout.ReadTimeoutException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.NestedExceptionUtils;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ClientHttpRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClientRequest;
+
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Client for the Ollama generate API on the shared connection pool from
+ * {@link com.habittracker.config.WebClientConfig}, whose size caps how many calls are in
+ * flight at once. The {@code Mono} and {@code Flux} methods never block; the
+ * {@code String} ones block the calling thread until the completion arrives. Non-streamed
+ * completions are looked up in {@link PromptCompletionCache} before calling Ollama.
+ *
+ * <p>Every call to Ollama is timed as {@code ollama.requests}, tagged with the operation
+ * and its outcome; timeouts waiting for Ollama's response and other errors are also counted
+ * as {@code ollama.timeouts} and {@code ollama.errors}, the latter tagged with the root
+ * cause (e.g. {@code PoolAcquireTimeoutException} for a call that waited too long for a
+ * pooled connection). Cache hits are not Ollama calls and are not timed.
+ *
+ * <p>Created on first use, together with the WebClient beans, to keep them off startup.
+ */
 @Service
+@Lazy
 @Slf4j
 public class OllamaService {
+    private static final String UNAVAILABLE_MESSAGE = "AI service temporarily unavailable. Please try again later.";
+    
     private final WebClient webClient;
     private final ObjectMapper objectMapper;
+    private final PromptCompletionCache completionCache;
+    private final MeterRegistry meterRegistry;
     
     @Value("${ollama.model}")
     private String model;
@@ -23,61 +54,194 @@ public class OllamaService {
     @Value("${ollama.timeout}")
     private int timeout;
     
-    public OllamaService(@Value("${ollama.base-url}") String baseUrl, ObjectMapper objectMapper) {
+    public OllamaService(WebClient.Builder webClientBuilder,
+                         @Value("${ollama.base-url}") String baseUrl,
+                         ObjectMapper objectMapper,
+                         PromptCompletionCache completionCache,
+                         MeterRegistry meterRegistry) {
         this.objectMapper = objectMapper;
-        this.webClient = WebClient.builder()
+        this.completionCache = completionCache;
+        this.meterRegistry = meterRegistry;
+        this.webClient = webClientBuilder.clone()
                 .baseUrl(baseUrl)
                 .build();
     }
     
+    /**
+     * @throws RuntimeException if Ollama is busy, unreachable or returns no text, so
+     *                          that no placeholder report gets stored
+     */
     public String generateWeeklyCoachingReport(String habitData) {
+        return generateWeeklyCoachingReportAsync(habitData).block();
+    }
+    
+    /**
+     * Errors with a {@code RuntimeException} if Ollama is busy, unreachable or returns no text.
+     */
+    public Mono<String> generateWeeklyCoachingReportAsync(String habitData) {
+        return generateText(weeklyCoachingPrompt(habitData));
+    }
+    
+    /**
+     * Streams the weekly report as text fragments in the order Ollama produces them
+     * ({@code "stream": true}). Holds a pooled connection until the stream terminates or
+     * is cancelled; {@code ollama.timeout} applies to the gap between fragments.
+     */
+    public Flux<String> streamWeeklyCoachingReport(String habitData) {
+        Flux<String> call = webClient.post()
+                .uri("/api/generate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(requestBody(weeklyCoachingPrompt(habitData), true))
+                .httpRequest(this::applyResponseTimeout)
+                .retrieve()
+                .bodyToFlux(String.class)
+                .filter(line -> !line.isBlank())
+                .map(this::parseChunk)
+                .takeUntil(StreamChunk::done)
+                .map(StreamChunk::text)
+                .filter(text -> !text.isEmpty());
+        
+        return Flux.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return call
+                    .doOnComplete(() -> record(sample, "stream", null))
+                    .doOnError(e -> record(sample, "stream", e))
+                    .doOnCancel(() -> sample.stop(requestTimer("stream", "cancelled")));
+        });
+    }
+    
+    public String generateMotivationalMessage(String context) {
+        return generateMotivationalMessageAsync(context).block();
+    }
+    
+    /**
+     * Never errors: falls back to a fixed message if Ollama is unavailable.
+     */
+    public Mono<String> generateMotivationalMessageAsync(String context) {
         String prompt = String.format(
+            "Generate a short, friendly, and motivational message (max 50 words) for this context: %s",
+            context
+        );
+        
+        return generateText(prompt)
+                .onErrorResume(e -> {
+                    log.error("Error calling Ollama: {}", e.getMessage());
+                    return Mono.just(UNAVAILABLE_MESSAGE);
+                });
+    }
+    
+    private String weeklyCoachingPrompt(String habitData) {
+        return String.format(
             "You are an expert productivity coach. Analyze this user's last 7 days of habits:\n\n%s\n\n" +
             "Give:\n1. Weekly summary\n2. Strengths\n3. Weak areas\n4. Personalized improvement plan\n5. Motivational message\n\n" +
             "Keep it short and friendly (max 300 words).",
             habitData
         );
+    }
+    
+    private Map<String, Object> requestBody(String prompt, boolean stream) {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", model);
+        requestBody.put("prompt", prompt);
+        requestBody.put("stream", stream);
+        return requestBody;
+    }
+    
+    /**
+     * Answers from {@link PromptCompletionCache} when it can; otherwise calls Ollama and
+     * caches the completion. Cache work runs on the bounded elastic scheduler since the
+     * persistent tier is a database table.
+     */
+    private Mono<String> generateText(String prompt) {
+        if (!completionCache.isEnabled()) {
+            return callGenerate(prompt);
+        }
         
-        return generateText(prompt);
+        String key = PromptCompletionCache.key(model, prompt);
+        return Mono.fromCallable(() -> completionCache.get(key).orElse(null))
+                .subscribeOn(Schedulers.boundedElastic())
+                .switchIfEmpty(Mono.defer(() -> callGenerate(prompt)
+                        .publishOn(Schedulers.boundedElastic())
+                        .doOnNext(completion -> completionCache.put(key, model, completion))));
     }
     
-    public String generateMotivationalMessage(String context) {
-        String prompt = String.format(
-            "Generate a short, friendly, and motivational message (max 50 words) for this context: %s",
-            context
-        );
+    private Mono<String> callGenerate(String prompt) {
+        Mono<String> call = webClient.post()
+                .uri("/api/generate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(requestBody(prompt, false))
+                .httpRequest(this::applyResponseTimeout)
+                .retrieve()
+                .bodyToMono(String.class)
+                .map(this::parseResponse)
+                .switchIfEmpty(Mono.error(() -> new RuntimeException("Empty response from Ollama")));
         
-        return generateText(prompt);
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return call
+                    .doOnSuccess(text -> record(sample, "generate", null))
+                    .doOnError(e -> record(sample, "generate", e))
+                    .doOnCancel(() -> sample.stop(requestTimer("generate", "cancelled")));
+        });
+    }
+    
+    /**
+     * Applies {@code ollama.timeout} to waiting for Ollama's response (between reads, so per
+     * fragment when streaming) rather than to the whole call, so that time queued for a
+     * pooled connection is only limited by {@code webclient.pending-acquire-timeout}.
+     */
+    private void applyResponseTimeout(ClientHttpRequest request) {
+        request.<HttpClientRequest>getNativeRequest().responseTimeout(Duration.ofMillis(timeout));
+    }
+    
+    private void record(Timer.Sample sample, String operation, Throwable error) {
+        if (error == null) {
+            sample.stop(requestTimer(operation, "success"));
+        } else if (NestedExceptionUtils.getMostSpecificCause(error) instanceof ReadTimeoutException) {
+            sample.stop(requestTimer(operation, "timeout"));
+            meterRegistry.counter("ollama.timeouts", "operation", operation).increment();
+        } else {
+            sample.stop(requestTimer(operation, "error"));
+            meterRegistry.counter("ollama.errors", "operation", operation,
+                    "exception", NestedExceptionUtils.getMostSpecificCause(error).getClass().getSimpleName()).increment();
+        }
     }
     
-    private String generateText(String prompt) {
+    private Timer requestTimer(String operation, String outcome) {
+        return Timer.builder("ollama.requests")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+    
+    private String parseResponse(String response) {
+        try {
+            JsonNode jsonNode = objectMapper.readTree(response);
+            String generatedText = jsonNode.get("response").asText();
+            log.info("Ollama response received: {}", generatedText.substring(0, Math.min(100, generatedText.length())));
+            return generatedText.trim();
+        } catch (Exception e) {
+            throw new RuntimeException("Invalid Ollama response: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Parses one line of Ollama's newline-delimited JSON stream.
+     */
+    private StreamChunk parseChunk(String line) {
         try {
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("model", model);
-            requestBody.put("prompt", prompt);
-            requestBody.put("stream", false);
-            
-            String response = webClient.post()
-                    .uri("/api/generate")
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .timeout(Duration.ofMillis(timeout))
-                    .block();
-            
-            if (response != null) {
-                JsonNode jsonNode = objectMapper.readTree(response);
-                String generatedText = jsonNode.get("response").asText();
-                log.info("Ollama response received: {}", generatedText.substring(0, Math.min(100, generatedText.length())));
-                return generatedText.trim();
+            JsonNode jsonNode = objectMapper.readTree(line);
+            if (jsonNode.hasNonNull("error")) {
+                throw new RuntimeException("Ollama error: " + jsonNode.get("error").asText());
             }
-            
-            return "Unable to generate AI response. Please check Ollama connection.";
+            return new StreamChunk(jsonNode.path("response").asText(""), jsonNode.path("done").asBoolean(false));
+        } catch (RuntimeException e) {
+            throw e;
         } catch (Exception e) {
-            log.error("Error calling Ollama: {}", e.getMessage());
-            return "AI service temporarily unavailable. Please try again later.";
+            throw new RuntimeException("Invalid Ollama stream chunk: " + e.getMessage(), e);
         }
     }
+    
+    private record StreamChunk(String text, boolean done) {
+    }
 }
-
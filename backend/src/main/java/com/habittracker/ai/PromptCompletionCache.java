@@ -0,0 +1,233 @@
+package com.habittracker.ai;
+
+import com.habittracker.model.PromptCompletion;
+import com.habittracker.repository.PromptCompletionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Completions keyed by the SHA-256 of (model, normalized prompt), so users whose weekly
+ * summaries come out identical share one inference. Lookups try a bounded in-memory LRU
+ * first, then the {@code prompt_completions} table; both tiers expire entries
+ * {@code ollama.cache.ttl} after they were generated. {@code ollama.cache.enabled=false}
+ * bypasses the cache entirely. Database failures are logged and treated as misses.
+ */
+@Component
+@Slf4j
+@ManagedResource(objectName = "com.habittracker:type=PromptCompletionCache")
+public class PromptCompletionCache {
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    
+    private final PromptCompletionRepository repository;
+    private final boolean enabled;
+    private final boolean persistent;
+    private final int maxSize;
+    private final Duration ttl;
+    private final Clock clock;
+    
+    private final Map<String, Entry> entries;
+    
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong persistentHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    
+    @Autowired
+    public PromptCompletionCache(PromptCompletionRepository repository,
+                                 @Value("${ollama.cache.enabled:true}") boolean enabled,
+                                 @Value("${ollama.cache.persistent:true}") boolean persistent,
+                                 @Value("${ollama.cache.max-size:1000}") int maxSize,
+                                 @Value("${ollama.cache.ttl:7d}") Duration ttl) {
+        this(repository, enabled, persistent, maxSize, ttl, Clock.systemDefaultZone());
+    }
+    
+    PromptCompletionCache(PromptCompletionRepository repository, boolean enabled, boolean persistent,
+                          int maxSize, Duration ttl, Clock clock) {
+        this.repository = repository;
+        this.enabled = enabled;
+        this.persistent = persistent;
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > PromptCompletionCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    /**
+     * Prompts that differ only in surrounding or repeated whitespace share a key.
+     */
+    public static String key(String model, String prompt) {
+        String normalized = WHITESPACE.matcher(prompt.strip()).replaceAll(" ");
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(model.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(normalized.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * May query the database, so call it off event-loop threads.
+     */
+    public Optional<String> get(String key) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        
+        LocalDateTime cutoff = LocalDateTime.now(clock).minus(ttl);
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.createdAt().isAfter(cutoff)) {
+                    memoryHits.incrementAndGet();
+                    return Optional.of(entry.completion());
+                }
+                entries.remove(key);
+                evictions.incrementAndGet();
+            }
+        }
+        
+        if (persistent) {
+            try {
+                Optional<PromptCompletion> stored = repository.findByPromptHashAndCreatedAtAfter(key, cutoff);
+                if (stored.isPresent()) {
+                    persistentHits.incrementAndGet();
+                    remember(key, stored.get().getCompletion(), stored.get().getCreatedAt());
+                    return Optional.of(stored.get().getCompletion());
+                }
+            } catch (DataAccessException e) {
+                errors.incrementAndGet();
+                log.warn("Prompt completion lookup failed: {}", e.getMessage());
+            }
+        }
+        
+        misses.incrementAndGet();
+        return Optional.empty();
+    }
+    
+    /**
+     * May write to the database, so call it off event-loop threads.
+     */
+    public void put(String key, String model, String completion) {
+        if (!enabled) {
+            return;
+        }
+        
+        LocalDateTime now = LocalDateTime.now(clock);
+        remember(key, completion, now);
+        if (persistent) {
+            try {
+                repository.save(PromptCompletion.builder()
+                        .promptHash(key)
+                        .model(model)
+                        .completion(completion)
+                        .createdAt(now)
+                        .build());
+            } catch (DataAccessException e) {
+                errors.incrementAndGet();
+                log.warn("Storing prompt completion failed: {}", e.getMessage());
+            }
+        }
+    }
+    
+    @Scheduled(cron = "${ollama.cache.purge-cron:0 30 3 * * *}")
+    public void purgeExpired() {
+        if (!enabled || !persistent) {
+            return;
+        }
+        int purged = repository.deleteCreatedAtOrBefore(LocalDateTime.now(clock).minus(ttl));
+        log.debug("Purged {} expired prompt completions", purged);
+    }
+    
+    @ManagedOperation
+    public void clear() {
+        synchronized (entries) {
+            evictions.addAndGet(entries.size());
+            entries.clear();
+        }
+    }
+    
+    @ManagedAttribute
+    public long getMemoryHits() {
+        return memoryHits.get();
+    }
+    
+    @ManagedAttribute
+    public long getPersistentHits() {
+        return persistentHits.get();
+    }
+    
+    @ManagedAttribute
+    public long getMisses() {
+        return misses.get();
+    }
+    
+    @ManagedAttribute
+    public long getEvictions() {
+        return evictions.get();
+    }
+    
+    @ManagedAttribute
+    public long getErrors() {
+        return errors.get();
+    }
+    
+    @ManagedAttribute
+    public double getHitRate() {
+        long hits = memoryHits.get() + persistentHits.get();
+        long lookups = hits + misses.get();
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+    
+    @ManagedAttribute
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+    
+    private void remember(String key, String completion, LocalDateTime createdAt) {
+        synchronized (entries) {
+            entries.put(key, new Entry(completion, createdAt));
+        }
+    }
+    
+    private record Entry(String completion, LocalDateTime createdAt) {
+    }
+}
@@ -0,0 +1,34 @@
+package com.habittracker.config;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the application's {@link DataSource} in a {@link StatementCountingDataSource}
+ * unless {@code jdbc.statement-counting.enabled} is false. The counts feed the
+ * per-request {@code http.server.requests.statements} metric and the query budget tests.
+ * With read/write routing only the DataSource in front of the router is wrapped, so each
+ * statement is counted once.
+ */
+@Configuration
+@ConditionalOnProperty(name = "jdbc.statement-counting.enabled", havingValue = "true", matchIfMissing = true)
+public class DataSourceConfig {
+    @Bean
+    public static BeanPostProcessor statementCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+                if (bean instanceof DataSource dataSource && !(bean instanceof StatementCountingDataSource)
+                        && !(bean instanceof ReadWriteRoutingDataSource)) {
+                    return new StatementCountingDataSource(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,82 @@
+package com.habittracker.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.CompositeHealthContributor;
+import org.springframework.boot.actuate.health.HealthContributor;
+import org.springframework.boot.actuate.jdbc.DataSourceHealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * With {@code jdbc.routing.enabled}, replaces the auto-configured pool with a primary and a
+ * replica pool behind a {@link ReadWriteRoutingDataSource}. The primary is configured as
+ * before, from {@code spring.datasource.*} and {@code spring.datasource.hikari.*}; the
+ * replica binds {@code jdbc.routing.replica.*} straight onto its Hikari pool
+ * ({@code jdbc-url}, {@code username}, {@code maximum-pool-size}, ...). Neither pool is a
+ * bean of its own, so everything needing "the" DataSource gets the routing one; the
+ * {@code db} health check instead reports each pool, as {@code db.primary} and
+ * {@code db.replica}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "jdbc.routing.enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+    @Bean
+    public ReadWriteRoutingDataSource readWriteRoutingDataSource(
+            DataSourceProperties properties,
+            Environment environment,
+            MeterRegistry meterRegistry,
+            @Value("${jdbc.routing.lag-query}") String lagQuery,
+            @Value("${jdbc.routing.max-replica-lag:5s}") Duration maxReplicaLag) {
+        Binder binder = Binder.get(environment);
+        
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        HikariDataSource replica = new HikariDataSource();
+        binder.bind("jdbc.routing.replica", Bindable.ofInstance(replica));
+        if (replica.getJdbcUrl() == null) {
+            throw new IllegalStateException("jdbc.routing.enabled needs jdbc.routing.replica.jdbc-url");
+        }
+        
+        for (HikariDataSource pool : new HikariDataSource[]{primary, replica}) {
+            if (pool.getPoolName() == null) {
+                pool.setPoolName(pool == primary ? "primary" : "replica");
+            }
+            pool.setMetricRegistry(meterRegistry);
+        }
+        return new ReadWriteRoutingDataSource(primary, replica, lagQuery, maxReplicaLag, meterRegistry);
+    }
+    
+    /**
+     * The DataSource everything else uses. Defers fetching a connection until the first
+     * statement, by which time the transaction's read-only flag is set.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource readWriteRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(readWriteRoutingDataSource);
+    }
+    
+    /**
+     * Replaces the auto-configured {@code db} health check, which would check the routing
+     * DataSource and its proxy, i.e. the primary twice, and never the replica.
+     */
+    @Bean
+    public HealthContributor dbHealthContributor(ReadWriteRoutingDataSource readWriteRoutingDataSource) {
+        return CompositeHealthContributor.fromMap(Map.of(
+                "primary", new DataSourceHealthIndicator(readWriteRoutingDataSource.getPrimary()),
+                "replica", new DataSourceHealthIndicator(readWriteRoutingDataSource.getReplica())));
+    }
+}
@@ -0,0 +1,86 @@
+package com.habittracker.config;
+
+import com.habittracker.ai.PromptCompletionCache;
+import com.habittracker.scheduler.AIReportScheduler;
+import com.habittracker.service.AnalyticsCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Publishes the counters that the caches and the weekly report scheduler already keep for
+ * JMX as Micrometer meters. Cache meters follow Micrometer's {@code cache.*} naming, tagged
+ * with the cache name, so both caches land in the same Prometheus series.
+ */
+@Configuration
+public class MetricsConfig {
+    @Bean
+    public MeterBinder analyticsCacheMetrics(AnalyticsCache cache) {
+        return registry -> {
+            FunctionCounter.builder("cache.gets", cache, AnalyticsCache::getHits)
+                    .tags("cache", "analytics", "result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("cache.gets", cache, AnalyticsCache::getMisses)
+                    .tags("cache", "analytics", "result", "miss")
+                    .register(registry);
+            FunctionCounter.builder("cache.evictions", cache, AnalyticsCache::getEvictions)
+                    .tag("cache", "analytics")
+                    .register(registry);
+            FunctionCounter.builder("cache.invalidations", cache, AnalyticsCache::getInvalidations)
+                    .tag("cache", "analytics")
+                    .register(registry);
+            Gauge.builder("cache.size", cache, AnalyticsCache::getSize)
+                    .tag("cache", "analytics")
+                    .register(registry);
+        };
+    }
+    
+    @Bean
+    public MeterBinder promptCompletionCacheMetrics(PromptCompletionCache cache) {
+        return registry -> {
+            FunctionCounter.builder("cache.gets", cache, c -> c.getMemoryHits() + c.getPersistentHits())
+                    .tags("cache", "prompt-completions", "result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("cache.gets", cache, PromptCompletionCache::getMisses)
+                    .tags("cache", "prompt-completions", "result", "miss")
+                    .register(registry);
+            FunctionCounter.builder("cache.evictions", cache, PromptCompletionCache::getEvictions)
+                    .tag("cache", "prompt-completions")
+                    .register(registry);
+            Gauge.builder("cache.size", cache, PromptCompletionCache::getSize)
+                    .tag("cache", "prompt-completions")
+                    .register(registry);
+            FunctionCounter.builder("prompt.cache.persistent.hits", cache, PromptCompletionCache::getPersistentHits)
+                    .description("Hits served from the prompt_completions table rather than memory")
+                    .register(registry);
+            FunctionCounter.builder("prompt.cache.errors", cache, PromptCompletionCache::getErrors)
+                    .register(registry);
+        };
+    }
+    
+    /**
+     * Progress of the current (or last) weekly report run; the run duration itself is the
+     * {@code ai.report.runs} timer recorded by the scheduler.
+     */
+    @Bean
+    public MeterBinder aiReportSchedulerMetrics(AIReportScheduler scheduler) {
+        return registry -> {
+            Gauge.builder("ai.report.run.active", scheduler, s -> s.isRunning() ? 1 : 0)
+                    .register(registry);
+            Gauge.builder("ai.report.run.remaining", scheduler, AIReportScheduler::getRemaining)
+                    .description("Users still to be processed by the current run")
+                    .register(registry);
+            Gauge.builder("ai.report.run.users", scheduler, AIReportScheduler::getDone)
+                    .tag("state", "done")
+                    .register(registry);
+            Gauge.builder("ai.report.run.users", scheduler, AIReportScheduler::getFailed)
+                    .tag("state", "failed")
+                    .register(registry);
+            Gauge.builder("ai.report.run.throughput", scheduler, AIReportScheduler::getThroughputPerMinute)
+                    .baseUnit("users/min")
+                    .register(registry);
+        };
+    }
+}
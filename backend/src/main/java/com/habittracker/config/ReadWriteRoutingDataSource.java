@@ -0,0 +1,161 @@
+package com.habittracker.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+
+/**
+ * Sends connections for {@code @Transactional(readOnly = true)} work to the replica pool
+ * and everything else to the primary pool. Must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, since the
+ * transaction manager asks for a connection before the transaction is marked read-only.
+ *
+ * <p>Reads fall back to the primary while the replica is more than {@code maxLag} behind,
+ * as measured by {@code lagQuery} every {@code jdbc.routing.lag-check-interval}, or while
+ * it cannot be reached. Every connection handed out is counted as
+ * {@code jdbc.route.connections}, tagged with the pool it came from and why; the last
+ * measured lag is the {@code jdbc.replica.lag} gauge, and each pool has the usual
+ * {@code hikaricp.*} meters under its pool name.
+ */
+@Slf4j
+@ManagedResource(objectName = "com.habittracker:type=ReadWriteRoutingDataSource")
+public class ReadWriteRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+    private final HikariDataSource primary;
+    private final HikariDataSource replica;
+    private final JdbcTemplate replicaJdbcTemplate;
+    private final String lagQuery;
+    private final Duration maxLag;
+    
+    private final Counter writes;
+    private final Counter replicaReads;
+    private final Counter laggingReads;
+    private final Counter unavailableReads;
+    
+    // Unavailable until the first check has measured the lag
+    private volatile ReplicaState replicaState = ReplicaState.UNAVAILABLE;
+    private volatile double replicaLagSeconds = Double.NaN;
+    
+    enum ReplicaState {
+        USABLE, LAGGING, UNAVAILABLE
+    }
+    
+    public ReadWriteRoutingDataSource(HikariDataSource primary, HikariDataSource replica, String lagQuery,
+                                      Duration maxLag, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replica = replica;
+        this.replicaJdbcTemplate = new JdbcTemplate(replica);
+        this.lagQuery = lagQuery;
+        this.maxLag = maxLag;
+        
+        writes = routeCounter(meterRegistry, "primary", "read-write");
+        replicaReads = routeCounter(meterRegistry, "replica", "read-only");
+        laggingReads = routeCounter(meterRegistry, "primary", "replica-lagging");
+        unavailableReads = routeCounter(meterRegistry, "primary", "replica-unavailable");
+        Gauge.builder("jdbc.replica.lag", this, ReadWriteRoutingDataSource::getReplicaLagSeconds)
+                .description("Replication lag of the read replica at the last check; NaN if it could not be measured")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+    
+    private static Counter routeCounter(MeterRegistry meterRegistry, String route, String reason) {
+        return Counter.builder("jdbc.route.connections")
+                .tags("route", route, "reason", reason)
+                .register(meterRegistry);
+    }
+    
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            writes.increment();
+            return primary.getConnection();
+        }
+        ReplicaState state = replicaState;
+        if (state != ReplicaState.USABLE) {
+            (state == ReplicaState.LAGGING ? laggingReads : unavailableReads).increment();
+            return primary.getConnection();
+        }
+        
+        try {
+            Connection connection = replica.getConnection();
+            replicaReads.increment();
+            return connection;
+        } catch (SQLException e) {
+            // Stay on the primary until the next check finds the replica again
+            replicaState = ReplicaState.UNAVAILABLE;
+            log.warn("Read replica unavailable, reading from the primary: {}", e.getMessage());
+            unavailableReads.increment();
+            return primary.getConnection();
+        }
+    }
+    
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Credentials are configured per pool");
+    }
+    
+    /**
+     * Measures the replica's lag and decides whether reads may use it until the next check.
+     */
+    @Scheduled(fixedDelayString = "${jdbc.routing.lag-check-interval:PT5S}")
+    @ManagedOperation(description = "Measure replica lag now and re-evaluate read routing")
+    public void checkReplica() {
+        ReplicaState previous = replicaState;
+        try {
+            Double lag = replicaJdbcTemplate.queryForObject(lagQuery, Double.class);
+            replicaLagSeconds = lag != null ? lag : 0;
+            replicaState = replicaLagSeconds <= maxLag.toMillis() / 1000.0 ? ReplicaState.USABLE : ReplicaState.LAGGING;
+        } catch (Exception e) {
+            replicaLagSeconds = Double.NaN;
+            replicaState = ReplicaState.UNAVAILABLE;
+            if (previous != ReplicaState.UNAVAILABLE) {
+                log.warn("Cannot measure read replica lag, reading from the primary: {}", e.getMessage());
+            }
+            return;
+        }
+        
+        if (replicaState == ReplicaState.LAGGING && previous != ReplicaState.LAGGING) {
+            log.warn("Read replica is {}s behind, over the {}s limit; reading from the primary",
+                    replicaLagSeconds, maxLag.toSeconds());
+        } else if (replicaState == ReplicaState.USABLE && previous != ReplicaState.USABLE) {
+            log.info("Read replica is {}s behind; routing reads to it", replicaLagSeconds);
+        }
+    }
+    
+    @ManagedAttribute(description = "Whether read-only transactions currently use the replica")
+    public boolean isReplicaUsable() {
+        return replicaState == ReplicaState.USABLE;
+    }
+    
+    @ManagedAttribute(description = "Replica lag in seconds at the last check, NaN if unknown")
+    public double getReplicaLagSeconds() {
+        return replicaLagSeconds;
+    }
+    
+    HikariDataSource getPrimary() {
+        return primary;
+    }
+    
+    HikariDataSource getReplica() {
+        return replica;
+    }
+    
+    @Override
+    public void close() {
+        replica.close();
+        primary.close();
+    }
+}
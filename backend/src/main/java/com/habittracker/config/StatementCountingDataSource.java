@@ -0,0 +1,119 @@
+package com.habittracker.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the JDBC statements executed through the wrapped {@link DataSource}. Every
+ * {@code execute*} call is one statement; {@code executeBatch} is one as well, since the
+ * batch goes to the database in one round trip.
+ *
+ * <p>Statements are counted in a process-wide total and in every {@link Count} open on
+ * the executing thread, so work done on another thread (reactive pipelines, scheduled
+ * jobs) only shows up in the total.
+ */
+public class StatementCountingDataSource extends DelegatingDataSource {
+    private static final ThreadLocal<Count> CURRENT = new ThreadLocal<>();
+    
+    private final AtomicLong total = new AtomicLong();
+    
+    public StatementCountingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+    
+    /**
+     * Starts counting the statements executed on the current thread until the returned
+     * count is closed. Counts nest: an inner count's statements are added to the outer ones.
+     */
+    public static Count count() {
+        Count count = new Count(CURRENT.get());
+        CURRENT.set(count);
+        return count;
+    }
+    
+    public long getTotal() {
+        return total.get();
+    }
+    
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+    
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+    
+    private Connection wrap(Connection connection) {
+        return proxy(Connection.class, connection, (proxy, method, args) -> {
+            Object result = invoke(connection, method, args);
+            if (result instanceof CallableStatement statement) {
+                return wrap(CallableStatement.class, statement);
+            }
+            if (result instanceof PreparedStatement statement) {
+                return wrap(PreparedStatement.class, statement);
+            }
+            if (result instanceof Statement statement) {
+                return wrap(Statement.class, statement);
+            }
+            return result;
+        });
+    }
+    
+    private <S extends Statement> S wrap(Class<S> type, S statement) {
+        return proxy(type, statement, (proxy, method, args) -> {
+            if (method.getName().startsWith("execute")) {
+                total.incrementAndGet();
+                for (Count count = CURRENT.get(); count != null; count = count.parent) {
+                    count.statements++;
+                }
+            }
+            return invoke(statement, method, args);
+        });
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, handler);
+    }
+    
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+    
+    public static final class Count implements AutoCloseable {
+        private final Count parent;
+        private long statements;
+        
+        private Count(Count parent) {
+            this.parent = parent;
+        }
+        
+        public long get() {
+            return statements;
+        }
+        
+        @Override
+        public void close() {
+            if (CURRENT.get() == this) {
+                CURRENT.set(parent);
+            }
+        }
+    }
+}
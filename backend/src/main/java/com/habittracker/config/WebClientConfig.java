@@ -1,14 +1,51 @@
 package com.habittracker.config;
 
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
+import java.time.Duration;
+
+/**
+ * Shared Reactor Netty client for outbound HTTP. The pool allows
+ * {@code webclient.max-connections} keep-alive connections per remote host and queues
+ * further requests without blocking a thread for up to
+ * {@code webclient.pending-acquire-timeout}. Ollama is the only remote host, so the
+ * pool size is also the cap on concurrent LLM requests. Lazy: the beans are created with
+ * {@link com.habittracker.ai.OllamaService} on the first AI call, not at startup.
+ */
 @Configuration
+@Lazy
 public class WebClientConfig {
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider connectionProvider(
+            @Value("${webclient.max-connections:4}") int maxConnections,
+            @Value("${webclient.pending-acquire-timeout:60s}") Duration pendingAcquireTimeout,
+            @Value("${webclient.max-idle-time:30s}") Duration maxIdleTime) {
+        return ConnectionProvider.builder("webclient")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(-1)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .build();
+    }
+    
     @Bean
-    public WebClient.Builder webClientBuilder() {
-        return WebClient.builder();
+    public WebClient.Builder webClientBuilder(
+            ConnectionProvider connectionProvider,
+            @Value("${webclient.connect-timeout:5s}") Duration connectTimeout,
+            @Value("${webclient.read-timeout:60s}") Duration readTimeout) {
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .keepAlive(true)
+                .responseTimeout(readTimeout);
+        return WebClient.builder().clientConnector(new ReactorClientHttpConnector(httpClient));
     }
 }
-
@@ -1,43 +1,59 @@
 package com.habittracker.controller;
 
 import com.habittracker.dto.AIReportResponse;
-import com.habittracker.security.JwtTokenProvider;
+import com.habittracker.dto.AIReportStreamEvent;
+import com.habittracker.security.AuthenticatedUser;
+import com.habittracker.security.CurrentUser;
 import com.habittracker.service.AIReportService;
-import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 
 import java.util.List;
 
 @RestController
 @RequestMapping("/ai-reports")
 @RequiredArgsConstructor
+@Slf4j
 @CrossOrigin(origins = "http://localhost:3000")
 public class AIReportController {
     private final AIReportService aiReportService;
-    private final JwtTokenProvider tokenProvider;
-    
-    private Long getUserIdFromRequest(HttpServletRequest request) {
-        String token = request.getHeader("Authorization").substring(7);
-        return tokenProvider.getUserIdFromToken(token);
-    }
     
     @GetMapping
-    public ResponseEntity<List<AIReportResponse>> getUserReports(HttpServletRequest request) {
-        Long userId = getUserIdFromRequest(request);
+    public ResponseEntity<List<AIReportResponse>> getUserReports(@CurrentUser AuthenticatedUser user) {
+        Long userId = user.getUserId();
         List<AIReportResponse> reports = aiReportService.getUserReports(userId);
         return ResponseEntity.ok(reports);
     }
     
     @GetMapping("/latest")
-    public ResponseEntity<AIReportResponse> getLatestReport(HttpServletRequest request) {
-        Long userId = getUserIdFromRequest(request);
+    public ResponseEntity<AIReportResponse> getLatestReport(@CurrentUser AuthenticatedUser user) {
+        Long userId = user.getUserId();
         AIReportResponse report = aiReportService.getLatestReport(userId);
         if (report == null) {
             return ResponseEntity.notFound().build();
         }
         return ResponseEntity.ok(report);
     }
+    
+    /**
+     * Generates this week's report and relays it as Server-Sent Events while Ollama
+     * produces it; see {@link AIReportStreamEvent} for the event types. The response is
+     * always a 200 stream: a user with no habits, or any failure once the request is
+     * accepted, including loading the report data, ends it with an {@code error} event.
+     */
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<AIReportStreamEvent>> streamWeeklyReport(@CurrentUser AuthenticatedUser user) {
+        Long userId = user.getUserId();
+        return aiReportService.streamWeeklyReport(userId)
+                .onErrorResume(e -> {
+                    log.error("Error streaming report for user {}: {}", userId, e.getMessage());
+                    return Flux.just(AIReportStreamEvent.error("AI service temporarily unavailable. Please try again later."));
+                })
+                .map(event -> ServerSentEvent.builder(event).event(event.getType()).build());
+    }
 }
-
@@ -1,9 +1,10 @@
 package com.habittracker.controller;
 
 import com.habittracker.dto.AnalyticsResponse;
-import com.habittracker.security.JwtTokenProvider;
+import com.habittracker.dto.CompactAnalyticsResponse;
+import com.habittracker.security.AuthenticatedUser;
+import com.habittracker.security.CurrentUser;
 import com.habittracker.service.AnalyticsService;
-import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -14,18 +15,23 @@ import org.springframework.web.bind.annotation.*;
 @CrossOrigin(origins = "http://localhost:3000")
 public class AnalyticsController {
     private final AnalyticsService analyticsService;
-    private final JwtTokenProvider tokenProvider;
-    
-    private Long getUserIdFromRequest(HttpServletRequest request) {
-        String token = request.getHeader("Authorization").substring(7);
-        return tokenProvider.getUserIdFromToken(token);
-    }
     
     @GetMapping
-    public ResponseEntity<AnalyticsResponse> getAnalytics(HttpServletRequest request) {
-        Long userId = getUserIdFromRequest(request);
+    public ResponseEntity<AnalyticsResponse> getAnalytics(@CurrentUser AuthenticatedUser user) {
+        Long userId = user.getUserId();
         AnalyticsResponse analytics = analyticsService.getAnalytics(userId);
         return ResponseEntity.ok(analytics);
     }
+    
+    /**
+     * The same analytics with the heatmap and weekly trend as base64 bitmaps and count arrays,
+     * a few hundred bytes instead of one JSON entry per day.
+     */
+    @GetMapping(params = "format=compact")
+    public ResponseEntity<CompactAnalyticsResponse> getCompactAnalytics(@CurrentUser AuthenticatedUser user) {
+        Long userId = user.getUserId();
+        AnalyticsResponse analytics = analyticsService.getAnalytics(userId);
+        return ResponseEntity.ok(analytics.getCompact());
+    }
 }
 
@@ -1,16 +1,22 @@
 package com.habittracker.controller;
 
+import com.habittracker.dto.HabitLogBatchRequest;
+import com.habittracker.dto.HabitLogBatchResponse;
 import com.habittracker.dto.HabitLogRequest;
 import com.habittracker.dto.HabitRequest;
 import com.habittracker.dto.HabitResponse;
-import com.habittracker.security.JwtTokenProvider;
+import com.habittracker.security.AuthenticatedUser;
+import com.habittracker.security.CurrentUser;
 import com.habittracker.service.HabitService;
-import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -19,59 +25,72 @@ import java.util.List;
 @CrossOrigin(origins = "http://localhost:3000")
 public class HabitController {
     private final HabitService habitService;
-    private final JwtTokenProvider tokenProvider;
-    
-    private Long getUserIdFromRequest(HttpServletRequest request) {
-        String token = request.getHeader("Authorization").substring(7);
-        return tokenProvider.getUserIdFromToken(token);
-    }
     
     @PostMapping
-    public ResponseEntity<HabitResponse> createHabit(@Valid @RequestBody HabitRequest request, HttpServletRequest httpRequest) {
-        Long userId = getUserIdFromRequest(httpRequest);
+    public ResponseEntity<HabitResponse> createHabit(@Valid @RequestBody HabitRequest request, @CurrentUser AuthenticatedUser user) {
+        Long userId = user.getUserId();
         HabitResponse response = habitService.createHabit(userId, request);
         return ResponseEntity.ok(response);
     }
     
     @GetMapping
-    public ResponseEntity<List<HabitResponse>> getUserHabits(HttpServletRequest request) {
-        Long userId = getUserIdFromRequest(request);
+    public ResponseEntity<List<HabitResponse>> getUserHabits(@CurrentUser AuthenticatedUser user) {
+        Long userId = user.getUserId();
         List<HabitResponse> habits = habitService.getUserHabits(userId);
         return ResponseEntity.ok(habits);
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<HabitResponse> getHabit(@PathVariable Long id, HttpServletRequest request) {
-        Long userId = getUserIdFromRequest(request);
+    public ResponseEntity<HabitResponse> getHabit(@PathVariable Long id, @CurrentUser AuthenticatedUser user) {
+        Long userId = user.getUserId();
         HabitResponse habit = habitService.getHabitById(id, userId);
         return ResponseEntity.ok(habit);
     }
     
     @PutMapping("/{id}")
-    public ResponseEntity<HabitResponse> updateHabit(@PathVariable Long id, @Valid @RequestBody HabitRequest request, HttpServletRequest httpRequest) {
-        Long userId = getUserIdFromRequest(httpRequest);
+    public ResponseEntity<HabitResponse> updateHabit(@PathVariable Long id, @Valid @RequestBody HabitRequest request, @CurrentUser AuthenticatedUser user) {
+        Long userId = user.getUserId();
         HabitResponse response = habitService.updateHabit(id, userId, request);
         return ResponseEntity.ok(response);
     }
     
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteHabit(@PathVariable Long id, HttpServletRequest request) {
-        Long userId = getUserIdFromRequest(request);
+    public ResponseEntity<Void> deleteHabit(@PathVariable Long id, @CurrentUser AuthenticatedUser user) {
+        Long userId = user.getUserId();
         habitService.deleteHabit(id, userId);
         return ResponseEntity.noContent().build();
     }
     
     @PostMapping("/{id}/logs")
-    public ResponseEntity<Void> logHabit(@PathVariable Long id, @Valid @RequestBody HabitLogRequest request, HttpServletRequest httpRequest) {
-        Long userId = getUserIdFromRequest(httpRequest);
+    public ResponseEntity<Void> logHabit(@PathVariable Long id, @Valid @RequestBody HabitLogRequest request, @CurrentUser AuthenticatedUser user) {
+        Long userId = user.getUserId();
         habitService.logHabit(id, userId, request.getDate(), request.getStatus());
         return ResponseEntity.ok().build();
     }
     
+    @PostMapping("/logs:batch")
+    public ResponseEntity<HabitLogBatchResponse> logHabits(@Valid @RequestBody HabitLogBatchRequest request, @CurrentUser AuthenticatedUser user) {
+        Long userId = user.getUserId();
+        HabitLogBatchResponse response = habitService.logHabits(userId, request);
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * One page of a habit's logs as {@code {"logs":[{"date","status"}],"nextCursor"}}, oldest
+     * first; pass {@code nextCursor} back as {@code cursor} for the next page. The body is
+     * streamed after the ownership check, off the request thread.
+     */
     @GetMapping("/{id}/logs")
-    public ResponseEntity<?> getHabitLogs(@PathVariable Long id, HttpServletRequest request) {
-        Long userId = getUserIdFromRequest(request);
-        return ResponseEntity.ok(habitService.getHabitLogs(id, userId));
+    public ResponseEntity<StreamingResponseBody> getHabitLogs(@PathVariable Long id,
+                                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate cursor,
+                                                              @RequestParam(defaultValue = "100") int limit,
+                                                              @CurrentUser AuthenticatedUser user) {
+        Long userId = user.getUserId();
+        habitService.checkHabitOwner(id, userId);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> habitService.writeHabitLogs(id, from, to, cursor, limit, out));
     }
 }
-
@@ -0,0 +1,39 @@
+package com.habittracker.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One Server-Sent Event of a streamed report: {@code token} events carry the next text
+ * fragment, the final {@code report} event carries the stored report, and an
+ * {@code error} event ends a stream that failed.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AIReportStreamEvent {
+    public static final String TOKEN = "token";
+    public static final String REPORT = "report";
+    public static final String ERROR = "error";
+    
+    private String type;
+    private String text;
+    private AIReportResponse report;
+    
+    public static AIReportStreamEvent token(String text) {
+        return AIReportStreamEvent.builder().type(TOKEN).text(text).build();
+    }
+    
+    public static AIReportStreamEvent report(AIReportResponse report) {
+        return AIReportStreamEvent.builder().type(REPORT).report(report).build();
+    }
+    
+    public static AIReportStreamEvent error(String message) {
+        return AIReportStreamEvent.builder().type(ERROR).text(message).build();
+    }
+}
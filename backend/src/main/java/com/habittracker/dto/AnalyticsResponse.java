@@ -1,15 +1,18 @@
 package com.habittracker.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.util.List;
 import java.util.Map;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class AnalyticsResponse {
@@ -20,9 +23,18 @@ public class AnalyticsResponse {
     private List<WeeklyData> weeklyTrend;
     private Map<String, Integer> heatmapData;
     
+    /**
+     * The same analytics in the {@code format=compact} shape, encoded once when computed so
+     * that cached responses serve either format.
+     */
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private CompactAnalyticsResponse compact;
+    
     
     @Data
-    @Builder
+    @Builder(toBuilder = true)
     @NoArgsConstructor
     @AllArgsConstructor
     public static class WeeklyData {
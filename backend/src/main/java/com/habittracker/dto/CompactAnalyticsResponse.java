@@ -0,0 +1,57 @@
+package com.habittracker.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * {@link AnalyticsResponse} with the heatmap and weekly trend as positional series instead
+ * of one entry per date, returned for {@code GET /analytics?format=compact}.
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompactAnalyticsResponse {
+    private Double overallConsistency;
+    private Long totalStreak;
+    private Map<String, Long> categoryStreaks;
+    private Map<String, Double> categoryConsistency;
+    private DailySeries heatmap;
+    private WeeklySeries weeklyTrend;
+    
+    /**
+     * Day {@code i} is {@code startDate + i} and maps to bit {@code i % 8} of byte {@code i / 8}
+     * of each base64 bitmap. {@code completed} is set where every habit logged that day was
+     * completed, the days {@code heatmapData} has as 1; logged days without it are 0 there.
+     */
+    @Data
+    @Builder(toBuilder = true)
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DailySeries {
+        private LocalDate startDate;
+        private Integer days;
+        private String logged;
+        private String completed;
+    }
+    
+    /**
+     * Logged and completed counts of {@code weeks} consecutive Monday-based weeks, the first
+     * starting on {@code startDate}; weeks without logs are 0 rather than left out.
+     */
+    @Data
+    @Builder(toBuilder = true)
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class WeeklySeries {
+        private LocalDate startDate;
+        private Integer weeks;
+        private int[] logged;
+        private int[] completed;
+    }
+}
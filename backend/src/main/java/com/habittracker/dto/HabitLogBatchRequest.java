@@ -0,0 +1,30 @@
+package com.habittracker.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+public class HabitLogBatchRequest {
+    @NotEmpty(message = "Entries are required")
+    @Size(max = 1000, message = "At most 1000 entries per batch")
+    private List<@Valid @NotNull Entry> entries;
+    
+    
+    @Data
+    public static class Entry {
+        @NotNull(message = "Habit id is required")
+        private Long habitId;
+        
+        @NotNull(message = "Date is required")
+        private LocalDate date;
+        
+        @NotNull(message = "Status is required")
+        private Boolean status;
+    }
+}
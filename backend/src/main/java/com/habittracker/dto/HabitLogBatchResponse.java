@@ -0,0 +1,37 @@
+package com.habittracker.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HabitLogBatchResponse {
+    private Integer saved;
+    private Integer rejected;
+    private List<EntryResult> results;
+    
+    
+    /**
+     * {@code REJECTED} means the habit does not exist or belongs to another user.
+     */
+    public enum Outcome {
+        SAVED, REJECTED
+    }
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class EntryResult {
+        private Long habitId;
+        private LocalDate date;
+        private Outcome outcome;
+    }
+}
@@ -0,0 +1,14 @@
+package com.habittracker.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published whenever a user's habits or habit logs change, so that derived
+ * per-user data (such as cached analytics) can be dropped.
+ */
+@Getter
+@AllArgsConstructor
+public class HabitDataChangedEvent {
+    private final Long userId;
+}
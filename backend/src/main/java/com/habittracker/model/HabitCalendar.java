@@ -0,0 +1,58 @@
+package com.habittracker.model;
+
+import com.habittracker.service.CalendarBits;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One year of a habit's history as two day-of-year bitmaps: days that were logged
+ * and days that were completed. Equivalent to that year's {@code habit_logs} rows.
+ */
+@Entity
+@Table(name = "habit_calendars")
+@IdClass(HabitCalendarId.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HabitCalendar {
+    @Id
+    @Column(name = "habit_id")
+    private Long habitId;
+    
+    @Id
+    @Column(name = "calendar_year")
+    private Integer year;
+    
+    @Column(name = "logged_mask", nullable = false)
+    private byte[] loggedMask;
+    
+    @Column(name = "completed_mask", nullable = false)
+    private byte[] completedMask;
+    
+    public static HabitCalendar empty(Long habitId, int year) {
+        byte[] emptyMask = CalendarBits.toBytes(CalendarBits.empty());
+        return HabitCalendar.builder()
+                .habitId(habitId)
+                .year(year)
+                .loggedMask(emptyMask)
+                .completedMask(emptyMask.clone())
+                .build();
+    }
+    
+    public long[] loggedBits() {
+        return CalendarBits.fromBytes(loggedMask);
+    }
+    
+    public long[] completedBits() {
+        return CalendarBits.fromBytes(completedMask);
+    }
+    
+    public void setBits(long[] logged, long[] completed) {
+        this.loggedMask = CalendarBits.toBytes(logged);
+        this.completedMask = CalendarBits.toBytes(completed);
+    }
+}
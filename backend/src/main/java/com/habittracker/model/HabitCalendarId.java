@@ -0,0 +1,15 @@
+package com.habittracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HabitCalendarId implements Serializable {
+    private Long habitId;
+    private Integer year;
+}
@@ -25,6 +25,10 @@ public class HabitLog {
     @JoinColumn(name = "habit_id", nullable = false)
     private Habit habit;
     
+    // Copy of habit.user.id, so per-user reads use the (user_id, date) index without joining habits
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
     @Column(nullable = false)
     private LocalDate date;
     
@@ -0,0 +1,76 @@
+package com.habittracker.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Per-habit aggregate kept in step with {@code habit_logs} so that listing habits
+ * does not have to reload every habit's log history.
+ *
+ * <p>{@code currentStreak} is the length of the run of consecutive completed days
+ * ending at {@code streakEndDate}, the latest completed day. The streak shown to the
+ * user is relative to "today" and is derived from those two columns.
+ */
+@Entity
+@Table(name = "habit_stats")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HabitStats {
+    @Id
+    @Column(name = "habit_id")
+    private Long habitId;
+    
+    @Column(name = "current_streak", nullable = false)
+    private Long currentStreak;
+    
+    @Column(name = "streak_end_date")
+    private LocalDate streakEndDate;
+    
+    @Column(name = "longest_streak", nullable = false)
+    private Long longestStreak;
+    
+    @Column(name = "completed_count", nullable = false)
+    private Long completedCount;
+    
+    @Column(name = "logged_count", nullable = false)
+    private Long loggedCount;
+    
+    @Column(name = "last_log_date")
+    private LocalDate lastLogDate;
+    
+    public static HabitStats empty(Long habitId) {
+        return HabitStats.builder()
+                .habitId(habitId)
+                .currentStreak(0L)
+                .longestStreak(0L)
+                .completedCount(0L)
+                .loggedCount(0L)
+                .build();
+    }
+    
+    /**
+     * Number of consecutive completed days ending at {@code today}, or 0 when today
+     * has not been completed.
+     */
+    public long currentStreakAsOf(LocalDate today) {
+        if (streakEndDate == null || currentStreak == 0) return 0L;
+        
+        LocalDate streakStart = streakEndDate.minusDays(currentStreak - 1);
+        if (today.isBefore(streakStart) || today.isAfter(streakEndDate)) return 0L;
+        
+        return ChronoUnit.DAYS.between(streakStart, today) + 1;
+    }
+    
+    public double consistencyPercentage() {
+        if (loggedCount == 0) return 0.0;
+        return (double) completedCount / loggedCount * 100;
+    }
+}
@@ -0,0 +1,38 @@
+package com.habittracker.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a long-running batch job that walks rows in id order. Every id up to
+ * and including {@code lastId} has been processed, so a run interrupted before
+ * {@code completed} is set can continue after {@code lastId}.
+ */
+@Entity
+@Table(name = "job_checkpoints")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobCheckpoint {
+    @Id
+    @Column(name = "job_name", length = 100)
+    private String jobName;
+    
+    @Column(name = "last_id", nullable = false)
+    private Long lastId;
+    
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+    
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+    
+    @Column(nullable = false)
+    private Boolean completed;
+}
@@ -0,0 +1,33 @@
+package com.habittracker.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A stored LLM completion, addressed by the SHA-256 of its model and normalized prompt.
+ */
+@Entity
+@Table(name = "prompt_completions")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PromptCompletion {
+    @Id
+    @Column(name = "prompt_hash", length = 64)
+    private String promptHash;
+    
+    @Column(nullable = false, length = 100)
+    private String model;
+    
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String completion;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
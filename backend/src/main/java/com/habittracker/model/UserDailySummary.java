@@ -0,0 +1,37 @@
+package com.habittracker.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * How many of a user's habits were logged and completed on one day, kept in step with
+ * {@code habit_logs} so that the heatmap and overall consistency read one row per day.
+ * Rows can drop to zero logged habits when a habit is deleted; readers skip those.
+ */
+@Entity
+@Table(name = "user_daily_summary")
+@IdClass(UserDailySummaryId.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserDailySummary {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+    
+    @Id
+    @Column(name = "summary_date")
+    private LocalDate date;
+    
+    @Column(name = "habits_logged", nullable = false)
+    private Long habitsLogged;
+    
+    @Column(name = "habits_completed", nullable = false)
+    private Long habitsCompleted;
+}
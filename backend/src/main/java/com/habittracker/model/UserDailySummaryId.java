@@ -0,0 +1,16 @@
+package com.habittracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserDailySummaryId implements Serializable {
+    private Long userId;
+    private LocalDate date;
+}
@@ -0,0 +1,20 @@
+package com.habittracker.repository;
+
+import com.habittracker.model.HabitCalendar;
+import com.habittracker.model.HabitCalendarId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface HabitCalendarRepository extends JpaRepository<HabitCalendar, HabitCalendarId> {
+    List<HabitCalendar> findByHabitIdOrderByYear(Long habitId);
+    
+    @Modifying
+    @Query("DELETE FROM HabitCalendar c WHERE c.habitId = :habitId")
+    void deleteByHabitId(@Param("habitId") Long habitId);
+}
@@ -0,0 +1,10 @@
+package com.habittracker.repository;
+
+/**
+ * Logged and completed counts of one habit category over a date range.
+ */
+public interface HabitLogCategoryCounts {
+    String getCategory();
+    Long getLogged();
+    Long getCompleted();
+}
@@ -0,0 +1,10 @@
+package com.habittracker.repository;
+
+/**
+ * Logged and completed day counts of one habit over a date range.
+ */
+public interface HabitLogCounts {
+    Long getHabitId();
+    Long getLogged();
+    Long getCompleted();
+}
@@ -0,0 +1,12 @@
+package com.habittracker.repository;
+
+import java.time.LocalDate;
+
+/**
+ * Date/status projection of a {@code HabitLog}, used where the full entity
+ * (and its lazy habit association) is not needed.
+ */
+public interface HabitLogDay {
+    LocalDate getDate();
+    Boolean getStatus();
+}
@@ -0,0 +1,12 @@
+package com.habittracker.repository;
+
+import java.time.LocalDate;
+
+/**
+ * Logged and completed counts of one day across all of a user's habits.
+ */
+public interface HabitLogDayCounts {
+    LocalDate getDate();
+    Long getLogged();
+    Long getCompleted();
+}
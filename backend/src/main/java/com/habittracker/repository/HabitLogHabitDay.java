@@ -0,0 +1,8 @@
+package com.habittracker.repository;
+
+/**
+ * {@link HabitLogDay} together with its habit id, for reading several habits' histories at once.
+ */
+public interface HabitLogHabitDay extends HabitLogDay {
+    Long getHabitId();
+}
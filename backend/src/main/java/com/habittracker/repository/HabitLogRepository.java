@@ -1,22 +1,62 @@
 package com.habittracker.repository;
 
 import com.habittracker.model.HabitLog;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface HabitLogRepository extends JpaRepository<HabitLog, Long> {
+public interface HabitLogRepository extends JpaRepository<HabitLog, Long>, HabitLogUpsertRepository {
     List<HabitLog> findByHabitId(Long habitId);
     Optional<HabitLog> findByHabitIdAndDate(Long habitId, LocalDate date);
     List<HabitLog> findByHabitIdAndDateBetween(Long habitId, LocalDate start, LocalDate end);
     
-    @Query("SELECT hl FROM HabitLog hl WHERE hl.habit.user.id = :userId AND hl.date BETWEEN :start AND :end")
+    @Query("SELECT hl FROM HabitLog hl WHERE hl.userId = :userId AND hl.date BETWEEN :start AND :end")
     List<HabitLog> findByUserIdAndDateBetween(@Param("userId") Long userId, @Param("start") LocalDate start, @Param("end") LocalDate end);
+    
+    @Query("SELECT hl.date AS date, hl.status AS status FROM HabitLog hl WHERE hl.habit.id = :habitId ORDER BY hl.date")
+    List<HabitLogDay> findDaysByHabitId(@Param("habitId") Long habitId);
+    
+    /**
+     * Keyset page of a habit's logs, oldest first: the dates in {@code (after, to]}. Must be
+     * consumed inside a transaction; rows are fetched from the cursor in chunks.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "200"))
+    @Query("SELECT hl.date AS date, hl.status AS status FROM HabitLog hl " +
+           "WHERE hl.habit.id = :habitId AND hl.date > :after AND hl.date <= :to ORDER BY hl.date")
+    Stream<HabitLogDay> streamDaysByHabitId(@Param("habitId") Long habitId, @Param("after") LocalDate after, @Param("to") LocalDate to, Limit limit);
+    
+    @Query("SELECT hl.habit.id AS habitId, hl.date AS date, hl.status AS status FROM HabitLog hl " +
+           "WHERE hl.habit.id IN :habitIds ORDER BY hl.habit.id, hl.date")
+    List<HabitLogHabitDay> findDaysByHabitIdIn(@Param("habitIds") Collection<Long> habitIds);
+    
+    @Query("SELECT hl.habit.id AS habitId, COUNT(hl) AS logged, " +
+           "SUM(CASE WHEN hl.status = true THEN 1 ELSE 0 END) AS completed FROM HabitLog hl " +
+           "WHERE hl.userId = :userId AND hl.date BETWEEN :start AND :end GROUP BY hl.habit.id")
+    List<HabitLogCounts> countByHabitForUserAndDateBetween(@Param("userId") Long userId, @Param("start") LocalDate start, @Param("end") LocalDate end);
+    
+    @Query("SELECT h.category AS category, COUNT(hl) AS logged, " +
+           "SUM(CASE WHEN hl.status = true THEN 1 ELSE 0 END) AS completed FROM HabitLog hl JOIN hl.habit h " +
+           "WHERE hl.userId = :userId AND hl.date BETWEEN :start AND :end GROUP BY h.category")
+    List<HabitLogCategoryCounts> countByCategoryForUserAndDateBetween(@Param("userId") Long userId, @Param("start") LocalDate start, @Param("end") LocalDate end);
+    
+    /**
+     * Bulk delete, so that removing a habit does not load and delete its logs one by one.
+     */
+    @Modifying
+    @Query("DELETE FROM HabitLog hl WHERE hl.habit.id = :habitId")
+    int deleteByHabitId(@Param("habitId") Long habitId);
 }
 
@@ -0,0 +1,33 @@
+package com.habittracker.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface HabitLogUpsertRepository {
+    /**
+     * Inserts or overwrites the {@code (habitId, date)} log of every entry as a single
+     * JDBC batch. Every habit must already have been checked to belong to {@code userId}.
+     */
+    void upsertAll(Long userId, List<Entry> entries);
+    
+    /**
+     * Inserts or overwrites one day's log in a single round trip that only writes if
+     * {@code userId} owns the habit. The existing row, if any, is locked before being
+     * overwritten, so concurrent writers to the same day serialise instead of failing
+     * on {@code UNIQUE(habit_id, date)}.
+     */
+    UpsertResult upsert(Long habitId, Long userId, LocalDate date, boolean status);
+    
+    record Entry(Long habitId, LocalDate date, boolean status) {
+    }
+    
+    /**
+     * @param ownerId        owner of the habit, or null if it does not exist; nothing
+     *                       was written unless this is the calling user
+     * @param previousStatus status the day had before the write; null if it was not
+     *                       logged, or if a concurrent insert hid it (then {@code inserted} is false)
+     * @param inserted       whether the write created the day's log
+     */
+    record UpsertResult(Long ownerId, Boolean previousStatus, boolean inserted) {
+    }
+}
@@ -0,0 +1,113 @@
+package com.habittracker.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class HabitLogUpsertRepositoryImpl implements HabitLogUpsertRepository {
+    private static final String POSTGRES_UPSERT_ALL =
+            "INSERT INTO habit_logs (habit_id, user_id, date, status) VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (habit_id, date) DO UPDATE SET status = EXCLUDED.status";
+    // H2 (used by tests) only supports ON CONFLICT DO NOTHING
+    private static final String H2_UPSERT_ALL =
+            "MERGE INTO habit_logs (habit_id, user_id, date, status) KEY (habit_id, date) VALUES (?, ?, ?, ?)";
+    
+    // Three statements that pgjdbc sends in one round trip and PostgreSQL runs in order, each
+    // seeing the ones before: lock and read the existing row, insert if there was none, then
+    // overwrite. A row inserted concurrently after the first statement is overwritten by the
+    // third, and previous_status is then null with inserted false.
+    private static final String POSTGRES_UPSERT =
+            "SELECT h.user_id AS owner_id, hl.status AS previous_status FROM habits h" +
+            "  LEFT JOIN LATERAL (" +
+            "    SELECT status FROM habit_logs WHERE habit_id = h.id AND date = ? AND user_id = ? FOR UPDATE" +
+            "  ) hl ON TRUE" +
+            "  WHERE h.id = ?;" +
+            "INSERT INTO habit_logs (habit_id, user_id, date, status)" +
+            "  SELECT id, user_id, ?, ? FROM habits WHERE id = ? AND user_id = ?" +
+            "  ON CONFLICT (habit_id, date) DO NOTHING" +
+            "  RETURNING habit_id;" +
+            "UPDATE habit_logs SET status = ?" +
+            "  WHERE habit_id = ? AND date = ? AND user_id = ? AND status <> ?";
+    private static final String H2_UPSERT =
+            "SELECT (SELECT user_id FROM habits WHERE id = ?) AS owner_id," +
+            "  (SELECT status FROM OLD TABLE (" +
+            "    MERGE INTO habit_logs (habit_id, user_id, date, status) KEY (habit_id, date)" +
+            "    SELECT id, user_id, ?, ? FROM habits WHERE id = ? AND user_id = ?" +
+            "  )) AS previous_status";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Boolean h2;
+    
+    @Override
+    public void upsertAll(Long userId, List<Entry> entries) {
+        jdbcTemplate.batchUpdate(isH2() ? H2_UPSERT_ALL : POSTGRES_UPSERT_ALL, entries, entries.size(), (ps, entry) -> {
+            ps.setLong(1, entry.habitId());
+            ps.setLong(2, userId);
+            ps.setDate(3, Date.valueOf(entry.date()));
+            ps.setBoolean(4, entry.status());
+        });
+    }
+    
+    @Override
+    public UpsertResult upsert(Long habitId, Long userId, LocalDate date, boolean status) {
+        Date day = Date.valueOf(date);
+        if (isH2()) {
+            // H2's MERGE reports the row it overwrote, so no previous row means an insert
+            return jdbcTemplate.queryForObject(H2_UPSERT, (rs, rowNum) -> {
+                Long ownerId = rs.getObject("owner_id", Long.class);
+                Boolean previousStatus = rs.getObject("previous_status", Boolean.class);
+                return new UpsertResult(ownerId, previousStatus, userId.equals(ownerId) && previousStatus == null);
+            }, habitId, day, status, habitId, userId);
+        }
+        
+        return jdbcTemplate.execute(POSTGRES_UPSERT, (PreparedStatement ps) -> {
+            ps.setDate(1, day);
+            ps.setLong(2, userId);
+            ps.setLong(3, habitId);
+            ps.setDate(4, day);
+            ps.setBoolean(5, status);
+            ps.setLong(6, habitId);
+            ps.setLong(7, userId);
+            ps.setBoolean(8, status);
+            ps.setLong(9, habitId);
+            ps.setDate(10, day);
+            ps.setLong(11, userId);
+            ps.setBoolean(12, status);
+            ps.execute();
+            
+            Long ownerId = null;
+            Boolean previousStatus = null;
+            try (ResultSet rs = ps.getResultSet()) {
+                if (rs.next()) {
+                    ownerId = rs.getObject("owner_id", Long.class);
+                    previousStatus = rs.getObject("previous_status", Boolean.class);
+                }
+            }
+            ps.getMoreResults();
+            try (ResultSet rs = ps.getResultSet()) {
+                return new UpsertResult(ownerId, previousStatus, rs.next());
+            }
+        });
+    }
+    
+    private boolean isH2() {
+        if (h2 == null) {
+            DataSource dataSource = jdbcTemplate.getDataSource();
+            try {
+                h2 = "H2".equals(JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName));
+            } catch (Exception e) {
+                throw new RuntimeException("Cannot determine database product", e);
+            }
+        }
+        return h2;
+    }
+}
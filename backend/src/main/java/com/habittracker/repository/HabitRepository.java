@@ -2,12 +2,30 @@ package com.habittracker.repository;
 
 import com.habittracker.model.Habit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface HabitRepository extends JpaRepository<Habit, Long> {
     List<Habit> findByUserId(Long userId);
+    
+    /**
+     * Each row is {@code [Habit, HabitStats]}; the stats element is null for habits
+     * that have not been backfilled yet.
+     */
+    @Query("SELECT h, s FROM Habit h LEFT JOIN HabitStats s ON s.habitId = h.id WHERE h.user.id = :userId")
+    List<Object[]> findWithStatsByUserId(@Param("userId") Long userId);
+    
+    @Query("SELECT h.id FROM Habit h WHERE h.id IN :ids AND h.user.id = :userId")
+    List<Long> findIdsByIdInAndUserId(@Param("ids") Collection<Long> ids, @Param("userId") Long userId);
+    
+    @Query("SELECT h.id FROM Habit h ORDER BY h.id")
+    List<Long> findAllIds();
+    
+    @Query("SELECT h.id FROM Habit h WHERE NOT EXISTS (SELECT 1 FROM HabitStats s WHERE s.habitId = h.id)")
+    List<Long> findIdsWithoutStats();
 }
-
@@ -0,0 +1,27 @@
+package com.habittracker.repository;
+
+import com.habittracker.model.HabitStats;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface HabitStatsRepository extends JpaRepository<HabitStats, Long> {
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM HabitStats s WHERE s.habitId = :habitId")
+    Optional<HabitStats> findByIdForUpdate(@Param("habitId") Long habitId);
+    
+    /**
+     * Locks in id order, the order batch log writes use, so concurrent batches cannot deadlock.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM HabitStats s WHERE s.habitId IN :habitIds ORDER BY s.habitId")
+    List<HabitStats> findAllByIdForUpdate(@Param("habitIds") Collection<Long> habitIds);
+}
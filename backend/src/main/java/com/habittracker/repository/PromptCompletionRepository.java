@@ -0,0 +1,22 @@
+package com.habittracker.repository;
+
+import com.habittracker.model.PromptCompletion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface PromptCompletionRepository extends JpaRepository<PromptCompletion, String> {
+    Optional<PromptCompletion> findByPromptHashAndCreatedAtAfter(String promptHash, LocalDateTime createdAfter);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM PromptCompletion p WHERE p.createdAt <= :cutoff")
+    int deleteCreatedAtOrBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,19 @@
+package com.habittracker.repository;
+
+import com.habittracker.model.UserDailySummary;
+import com.habittracker.model.UserDailySummaryId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface UserDailySummaryRepository extends JpaRepository<UserDailySummary, UserDailySummaryId>, UserDailySummaryUpdateRepository {
+    @Query("SELECT s.date AS date, s.habitsLogged AS logged, s.habitsCompleted AS completed FROM UserDailySummary s " +
+           "WHERE s.userId = :userId AND s.date BETWEEN :start AND :end AND s.habitsLogged > 0")
+    List<HabitLogDayCounts> findDays(@Param("userId") Long userId, @Param("start") LocalDate start, @Param("end") LocalDate end);
+
+}
@@ -0,0 +1,33 @@
+package com.habittracker.repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+/**
+ * Writes to {@code user_daily_summary}. Each runs in the caller's
+ * transaction, next to the {@code habit_logs} write it mirrors.
+ */
+public interface UserDailySummaryUpdateRepository {
+    /**
+     * Adds to the user's counts for the day, creating the row if needed. Concurrent
+     * writers to the same day are serialised by the row lock, so no increment is lost.
+     */
+    void addToDay(Long userId, LocalDate date, int logged, int completed);
+    
+    /**
+     * Recounts the given days from {@code habit_logs}. Only for days that still have logs.
+     * Locks the days' rows before counting, so that a concurrent {@link #addToDay} is
+     * either included in the count or applied on top of it, never lost.
+     */
+    void recountDays(Long userId, Collection<LocalDate> dates);
+    
+    /**
+     * Takes a habit's logs out of the user's counts; call before deleting the logs.
+     */
+    void subtractHabit(Long userId, Long habitId);
+    
+    /**
+     * Replaces all of the user's rows with counts from {@code habit_logs}.
+     */
+    void rebuild(Long userId);
+}
@@ -0,0 +1,133 @@
+package com.habittracker.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class UserDailySummaryUpdateRepositoryImpl implements UserDailySummaryUpdateRepository {
+    private static final String POSTGRES_ADD =
+            "INSERT INTO user_daily_summary (user_id, summary_date, habits_logged, habits_completed) VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (user_id, summary_date) DO UPDATE SET " +
+            "habits_logged = user_daily_summary.habits_logged + EXCLUDED.habits_logged, " +
+            "habits_completed = user_daily_summary.habits_completed + EXCLUDED.habits_completed";
+    // H2 (used by tests) has no ON CONFLICT DO UPDATE
+    private static final String H2_ADD =
+            "MERGE INTO user_daily_summary s " +
+            "USING (VALUES (CAST(? AS BIGINT), CAST(? AS DATE), CAST(? AS BIGINT), CAST(? AS BIGINT))) " +
+            "AS v(user_id, summary_date, logged, completed) " +
+            "ON s.user_id = v.user_id AND s.summary_date = v.summary_date " +
+            "WHEN MATCHED THEN UPDATE SET habits_logged = s.habits_logged + v.logged, " +
+            "habits_completed = s.habits_completed + v.completed " +
+            "WHEN NOT MATCHED THEN INSERT (user_id, summary_date, habits_logged, habits_completed) " +
+            "VALUES (v.user_id, v.summary_date, v.logged, v.completed)";
+    
+    private static final String COUNT_LOGS =
+            "SELECT hl.user_id, hl.date, COUNT(*), SUM(CASE WHEN hl.status THEN 1 ELSE 0 END) " +
+            "FROM habit_logs hl WHERE hl.user_id = :userId";
+    private static final String POSTGRES_RECOUNT =
+            "INSERT INTO user_daily_summary (user_id, summary_date, habits_logged, habits_completed) %s " +
+            "ON CONFLICT (user_id, summary_date) DO UPDATE SET " +
+            "habits_logged = EXCLUDED.habits_logged, habits_completed = EXCLUDED.habits_completed";
+    private static final String H2_RECOUNT =
+            "MERGE INTO user_daily_summary (user_id, summary_date, habits_logged, habits_completed) " +
+            "KEY (user_id, summary_date) %s";
+    
+    // Creates the missing rows and locks the existing ones with a no-op update
+    private static final String POSTGRES_LOCK_DAYS =
+            "INSERT INTO user_daily_summary (user_id, summary_date, habits_logged, habits_completed) VALUES :days " +
+            "ON CONFLICT (user_id, summary_date) DO UPDATE SET habits_logged = user_daily_summary.habits_logged";
+    private static final String H2_LOCK_DAYS =
+            "MERGE INTO user_daily_summary s " +
+            "USING (VALUES :days) AS v(user_id, summary_date, logged, completed) " +
+            "ON s.user_id = v.user_id AND s.summary_date = v.summary_date " +
+            "WHEN MATCHED THEN UPDATE SET habits_logged = s.habits_logged " +
+            "WHEN NOT MATCHED THEN INSERT (user_id, summary_date, habits_logged, habits_completed) " +
+            "VALUES (v.user_id, v.summary_date, v.logged, v.completed)";
+    
+    private static final String SUBTRACT_HABIT =
+            "UPDATE user_daily_summary SET habits_logged = habits_logged - 1, " +
+            "habits_completed = habits_completed - (SELECT CASE WHEN hl.status THEN 1 ELSE 0 END FROM habit_logs hl " +
+            "  WHERE hl.habit_id = ? AND hl.date = user_daily_summary.summary_date) " +
+            "WHERE user_id = ? AND summary_date IN (SELECT date FROM habit_logs WHERE habit_id = ?)";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Boolean h2;
+    
+    @Override
+    public void addToDay(Long userId, LocalDate date, int logged, int completed) {
+        if (!isH2()) {
+            jdbcTemplate.update(POSTGRES_ADD, userId, Date.valueOf(date), logged, completed);
+            return;
+        }
+        try {
+            jdbcTemplate.update(H2_ADD, userId, Date.valueOf(date), logged, completed);
+        } catch (DuplicateKeyException e) {
+            // A concurrent first write to the day inserted the row; this time it matches
+            jdbcTemplate.update(H2_ADD, userId, Date.valueOf(date), logged, completed);
+        }
+    }
+    
+    @Override
+    public void recountDays(Long userId, Collection<LocalDate> dates) {
+        if (dates.isEmpty()) return;
+        
+        List<Date> days = dates.stream().sorted().distinct().map(Date::valueOf).toList();
+        NamedParameterJdbcTemplate namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        // In date order, so batches touching the same days cannot deadlock. The count below
+        // is a new statement, so it sees every addToDay that held a row until it committed.
+        MapSqlParameterSource lock = new MapSqlParameterSource("days",
+                days.stream().map(day -> new Object[]{userId, day, 0, 0}).toList());
+        if (!isH2()) {
+            namedJdbcTemplate.update(POSTGRES_LOCK_DAYS, lock);
+        } else {
+            try {
+                namedJdbcTemplate.update(H2_LOCK_DAYS, lock);
+            } catch (DuplicateKeyException e) {
+                // A concurrent first write to one of the days inserted its row; this time it matches
+                namedJdbcTemplate.update(H2_LOCK_DAYS, lock);
+            }
+        }
+        namedJdbcTemplate.update(recount(" AND hl.date IN (:dates)"), new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("dates", days));
+    }
+    
+    @Override
+    public void subtractHabit(Long userId, Long habitId) {
+        jdbcTemplate.update(SUBTRACT_HABIT, habitId, userId, habitId);
+    }
+    
+    @Override
+    public void rebuild(Long userId) {
+        jdbcTemplate.update("DELETE FROM user_daily_summary WHERE user_id = ?", userId);
+        new NamedParameterJdbcTemplate(jdbcTemplate).update(recount(""), new MapSqlParameterSource("userId", userId));
+    }
+    
+    private String recount(String condition) {
+        String counts = COUNT_LOGS + condition + " GROUP BY hl.user_id, hl.date";
+        return String.format(isH2() ? H2_RECOUNT : POSTGRES_RECOUNT, counts);
+    }
+    
+    private boolean isH2() {
+        if (h2 == null) {
+            DataSource dataSource = jdbcTemplate.getDataSource();
+            try {
+                h2 = "H2".equals(JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName));
+            } catch (Exception e) {
+                throw new RuntimeException("Cannot determine database product", e);
+            }
+        }
+        return h2;
+    }
+}
@@ -1,14 +1,29 @@
 package com.habittracker.repository;
 
 import com.habittracker.model.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
+    
+    /**
+     * Keyset page of user ids: the first {@code limit} ids greater than {@code lastId}.
+     */
+    @Query("SELECT u.id FROM User u WHERE u.id > :lastId ORDER BY u.id")
+    List<Long> findIdsAfter(@Param("lastId") Long lastId, Limit limit);
+    
+    long countByIdGreaterThan(Long id);
+    
+    @Query("SELECT u.id FROM User u ORDER BY u.id")
+    List<Long> findAllIds();
 }
 
@@ -1,32 +1,205 @@
 package com.habittracker.scheduler;
 
+import com.habittracker.model.JobCheckpoint;
+import com.habittracker.repository.JobCheckpointRepository;
 import com.habittracker.repository.UserRepository;
 import com.habittracker.service.AIReportService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Generates weekly AI reports for every user, keeping up to
+ * {@code ai-report.scheduler.parallelism} reports in flight without a thread per report.
+ * Calls toward Ollama are further capped by the shared connection pool
+ * ({@code webclient.max-connections}); a failure only affects that user's report.
+ *
+ * <p>Users are read as keyset pages of ids, so memory stays bounded by the page size.
+ * After each page the highest id is stored in {@code job_checkpoints}; a run interrupted
+ * by a crash or restart resumes after it on the next startup, within
+ * {@code ai-report.scheduler.resume-window} of the run's start.
+ */
 @Component
+@ManagedResource(objectName = "com.habittracker:type=AIReportScheduler")
 @RequiredArgsConstructor
 @Slf4j
 public class AIReportScheduler {
+    static final String JOB_NAME = "weekly-ai-report";
+    
     private final AIReportService aiReportService;
     private final UserRepository userRepository;
+    private final JobCheckpointRepository jobCheckpointRepository;
+    private final MeterRegistry meterRegistry;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile ReportRunProgress progress;
+    
+    @Value("${ai-report.scheduler.parallelism:4}")
+    private int parallelism;
+    
+    @Value("${ai-report.scheduler.page-size:500}")
+    private int pageSize;
+    
+    @Value("${ai-report.scheduler.progress-log-interval:100}")
+    private int progressLogInterval;
+    
+    @Value("${ai-report.scheduler.resume-window:24h}")
+    private Duration resumeWindow;
     
     @Scheduled(cron = "0 0 9 * * SUN") // Every Sunday at 9 AM
     public void generateWeeklyReports() {
-        log.info("Starting weekly AI report generation...");
+        run();
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedRun() {
+        jobCheckpointRepository.findById(JOB_NAME)
+                .filter(checkpoint -> !checkpoint.getCompleted())
+                .filter(checkpoint -> checkpoint.getStartedAt().isAfter(LocalDateTime.now().minus(resumeWindow)))
+                .ifPresent(checkpoint -> {
+                    log.info("Resuming weekly AI report generation after user {}", checkpoint.getLastId());
+                    start(checkpoint);
+                });
+    }
+    
+    /**
+     * Starts a new run and returns without waiting for it, so the shared scheduler
+     * thread is not blocked. Returns the progress of the run already in flight, if any.
+     */
+    public CompletableFuture<ReportRunProgress> run() {
+        LocalDateTime now = LocalDateTime.now();
+        return start(JobCheckpoint.builder()
+                .jobName(JOB_NAME)
+                .lastId(0L)
+                .startedAt(now)
+                .updatedAt(now)
+                .completed(false)
+                .build());
+    }
+    
+    private CompletableFuture<ReportRunProgress> start(JobCheckpoint checkpoint) {
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Weekly AI report generation already running: {}", progress);
+            return CompletableFuture.completedFuture(progress);
+        }
+        
+        long remaining;
+        try {
+            jobCheckpointRepository.save(checkpoint);
+            remaining = userRepository.countByIdGreaterThan(checkpoint.getLastId());
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+        
+        log.info("Starting weekly AI report generation for {} users with parallelism {}", remaining, parallelism);
         
-        userRepository.findAll().forEach(user -> {
-            try {
-                aiReportService.generateWeeklyReportForUser(user.getId());
-            } catch (Exception e) {
-                log.error("Error generating report for user {}: {}", user.getId(), e.getMessage());
+        ReportRunProgress runProgress = new ReportRunProgress((int) remaining, System.currentTimeMillis());
+        progress = runProgress;
+        ExecutorService coordinator = Executors.newSingleThreadExecutor();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        
+        return CompletableFuture.supplyAsync(() -> {
+            processPages(checkpoint, runProgress);
+            return runProgress;
+        }, coordinator).whenComplete((result, error) -> {
+            coordinator.shutdown();
+            sample.stop(meterRegistry.timer("ai.report.runs", "outcome", error == null ? "completed" : "stopped"));
+            runProgress.finish(System.currentTimeMillis());
+            running.set(false);
+            if (error != null) {
+                log.error("Weekly AI report generation stopped after user {}: {}", checkpoint.getLastId(), error.getMessage());
             }
+            log.info("Completed weekly AI report generation: {} in {} ms",
+                    runProgress, runProgress.getElapsedMillis(System.currentTimeMillis()));
         });
+    }
+    
+    private void processPages(JobCheckpoint checkpoint, ReportRunProgress runProgress) {
+        List<Long> userIds = userRepository.findIdsAfter(checkpoint.getLastId(), Limit.of(pageSize));
+        while (!userIds.isEmpty()) {
+            Flux.fromIterable(userIds)
+                    .flatMap(userId -> generateReport(userId, runProgress), parallelism)
+                    .then()
+                    .block();
+            
+            checkpoint.setLastId(userIds.get(userIds.size() - 1));
+            checkpoint.setUpdatedAt(LocalDateTime.now());
+            jobCheckpointRepository.save(checkpoint);
+            userIds = userRepository.findIdsAfter(checkpoint.getLastId(), Limit.of(pageSize));
+        }
         
-        log.info("Completed weekly AI report generation");
+        checkpoint.setCompleted(true);
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        jobCheckpointRepository.save(checkpoint);
+    }
+    
+    private Mono<Void> generateReport(Long userId, ReportRunProgress runProgress) {
+        return Mono.defer(() -> aiReportService.generateWeeklyReportForUserAsync(userId))
+                .then(Mono.fromRunnable(() -> logProgress(runProgress.recordDone(), runProgress)))
+                .onErrorResume(e -> {
+                    log.error("Error generating report for user {}: {}", userId, e.getMessage());
+                    logProgress(runProgress.recordFailed(), runProgress);
+                    return Mono.empty();
+                })
+                .then();
+    }
+    
+    private void logProgress(int processed, ReportRunProgress runProgress) {
+        if (processed % progressLogInterval == 0) {
+            log.info("Weekly AI report generation progress: {}", runProgress);
+        }
+    }
+    
+    public ReportRunProgress getProgress() {
+        return progress;
+    }
+    
+    @ManagedAttribute
+    public boolean isRunning() {
+        return running.get();
+    }
+    
+    @ManagedAttribute
+    public int getTotal() {
+        return progress == null ? 0 : progress.getTotal();
+    }
+    
+    @ManagedAttribute
+    public int getDone() {
+        return progress == null ? 0 : progress.getDone();
+    }
+    
+    @ManagedAttribute
+    public int getFailed() {
+        return progress == null ? 0 : progress.getFailed();
+    }
+    
+    @ManagedAttribute
+    public int getRemaining() {
+        return progress == null ? 0 : progress.getRemaining();
+    }
+    
+    @ManagedAttribute
+    public double getThroughputPerMinute() {
+        return progress == null ? 0.0 : progress.getThroughputPerMinute(System.currentTimeMillis());
     }
 }
-
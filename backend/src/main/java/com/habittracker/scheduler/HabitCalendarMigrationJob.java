@@ -0,0 +1,72 @@
+package com.habittracker.scheduler;
+
+import com.habittracker.repository.HabitRepository;
+import com.habittracker.service.HabitCalendarService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Copies existing {@code habit_logs} history into {@code habit_calendars}. Enable it
+ * for one startup after switching {@code habit-calendar.mode} to {@code dual-write};
+ * rebuilding is idempotent, so re-running it is safe.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class HabitCalendarMigrationJob {
+    private final HabitRepository habitRepository;
+    private final HabitCalendarService habitCalendarService;
+    
+    @Value("${habit-calendar.migrate-on-startup:false}")
+    private boolean migrateOnStartup;
+    
+    @Value("${habit-calendar.migration-parallelism:4}")
+    private int parallelism;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!migrateOnStartup) return;
+        
+        if (!habitCalendarService.getMode().writesCalendar()) {
+            log.warn("Skipping habit calendar migration: habit-calendar.mode is off");
+            return;
+        }
+        run();
+    }
+    
+    public CompletableFuture<Void> run() {
+        List<Long> habitIds = habitRepository.findAllIds();
+        log.info("Migrating {} habits to habit calendars with parallelism {}", habitIds.size(), parallelism);
+        
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        AtomicInteger failed = new AtomicInteger();
+        long startedAt = System.currentTimeMillis();
+        
+        CompletableFuture<?>[] tasks = habitIds.stream()
+                .map(habitId -> CompletableFuture.runAsync(() -> {
+                    try {
+                        habitCalendarService.rebuild(habitId);
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                        log.error("Error migrating habit {} to calendar: {}", habitId, e.getMessage());
+                    }
+                }, executor))
+                .toArray(CompletableFuture[]::new);
+        
+        return CompletableFuture.allOf(tasks).whenComplete((result, error) -> {
+            executor.shutdown();
+            log.info("Completed habit calendar migration: {} habits, {} failed, {} ms",
+                    habitIds.size(), failed.get(), System.currentTimeMillis() - startedAt);
+        });
+    }
+}
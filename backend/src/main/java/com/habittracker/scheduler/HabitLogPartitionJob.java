@@ -0,0 +1,87 @@
+package com.habittracker.scheduler;
+
+import com.habittracker.service.HabitLogPartitionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Keeps {@code habit_logs} partitioned: creates the next months' partitions ahead of time
+ * and, past the archive horizon, exports each old month to a compressed file and merges
+ * it into the archive partition. Runs after startup and nightly.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ManagedResource(objectName = "com.habittracker:type=HabitLogPartitionJob")
+public class HabitLogPartitionJob {
+    private final HabitLogPartitionService partitionService;
+    
+    @Value("${habit-logs.partitions.months-ahead:3}")
+    private int monthsAhead;
+    
+    @Value("${habit-logs.archive.enabled:true}")
+    private boolean archiveEnabled;
+    
+    @Value("${habit-logs.archive.horizon-months:24}")
+    private int horizonMonths;
+    
+    @Value("${habit-logs.archive.directory:archive/habit-logs}")
+    private String archiveDirectory;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        run();
+    }
+    
+    @Scheduled(cron = "${habit-logs.partitions.cron:0 15 3 * * *}")
+    @ManagedOperation(description = "Create upcoming habit_logs partitions and archive old ones")
+    public void run() {
+        if (!partitionService.isPartitioned()) return;
+        
+        LocalDate today = LocalDate.now();
+        try {
+            List<YearMonth> created = partitionService.ensurePartitions(today, monthsAhead);
+            if (!created.isEmpty()) {
+                log.info("Created habit_logs partitions for {}", created);
+            }
+        } catch (Exception e) {
+            log.error("Error creating habit_logs partitions: {}", e.getMessage());
+        }
+        
+        if (archiveEnabled) {
+            archive(today);
+        }
+    }
+    
+    private void archive(LocalDate today) {
+        if (partitionService.archiveUpperBound().isEmpty()) {
+            log.warn("Skipping habit_logs archival: partition habit_logs_archive does not exist");
+            return;
+        }
+        
+        for (YearMonth month : HabitLogPartitionService.monthsToArchive(partitionService.monthPartitions(), today, horizonMonths)) {
+            try {
+                Path file = partitionService.export(month, Path.of(archiveDirectory));
+                partitionService.prepareArchiveBound(month);
+                partitionService.mergeIntoArchive(month);
+                log.info("Archived habit_logs for {} to {}", month, file);
+            } catch (Exception e) {
+                // Months must be merged in order, so stop at the first failure
+                log.error("Error archiving habit_logs for {}: {}", month, e.getMessage());
+                return;
+            }
+        }
+    }
+}
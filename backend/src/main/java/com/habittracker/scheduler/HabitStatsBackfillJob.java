@@ -0,0 +1,71 @@
+package com.habittracker.scheduler;
+
+import com.habittracker.repository.HabitRepository;
+import com.habittracker.service.HabitStatsService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds {@code habit_stats} rows for habits created before the table existed.
+ * Runs once after startup, one transaction per habit, spread over a small pool.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class HabitStatsBackfillJob {
+    private final HabitRepository habitRepository;
+    private final HabitStatsService habitStatsService;
+    
+    @Value("${habit-stats.backfill.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${habit-stats.backfill.parallelism:4}")
+    private int parallelism;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            run();
+        }
+    }
+    
+    public CompletableFuture<Void> run() {
+        List<Long> habitIds = habitRepository.findIdsWithoutStats();
+        if (habitIds.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        log.info("Backfilling habit stats for {} habits with parallelism {}", habitIds.size(), parallelism);
+        
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        AtomicInteger failed = new AtomicInteger();
+        long startedAt = System.currentTimeMillis();
+        
+        CompletableFuture<?>[] tasks = habitIds.stream()
+                .map(habitId -> CompletableFuture.runAsync(() -> {
+                    try {
+                        habitStatsService.rebuild(habitId);
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                        log.error("Error backfilling stats for habit {}: {}", habitId, e.getMessage());
+                    }
+                }, executor))
+                .toArray(CompletableFuture[]::new);
+        
+        return CompletableFuture.allOf(tasks).whenComplete((result, error) -> {
+            executor.shutdown();
+            log.info("Completed habit stats backfill: {} habits, {} failed, {} ms",
+                    habitIds.size(), failed.get(), System.currentTimeMillis() - startedAt);
+        });
+    }
+}
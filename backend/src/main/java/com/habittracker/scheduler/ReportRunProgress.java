@@ -0,0 +1,72 @@
+package com.habittracker.scheduler;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counters for one weekly report run, updated by the worker threads. {@code total} is
+ * the user count when the run started; users registered during the run are processed
+ * too, so {@code remaining} never goes below zero.
+ */
+public class ReportRunProgress {
+    private final int total;
+    private final long startedAt;
+    private final AtomicInteger done = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private volatile long finishedAt;
+    
+    ReportRunProgress(int total, long startedAt) {
+        this.total = total;
+        this.startedAt = startedAt;
+    }
+    
+    int recordDone() {
+        return done.incrementAndGet() + failed.get();
+    }
+    
+    int recordFailed() {
+        return failed.incrementAndGet() + done.get();
+    }
+    
+    void finish(long now) {
+        finishedAt = now;
+    }
+    
+    public int getTotal() {
+        return total;
+    }
+    
+    public int getDone() {
+        return done.get();
+    }
+    
+    public int getFailed() {
+        return failed.get();
+    }
+    
+    public int getRemaining() {
+        return Math.max(0, total - done.get() - failed.get());
+    }
+    
+    public boolean isFinished() {
+        return finishedAt != 0;
+    }
+    
+    public long getElapsedMillis(long now) {
+        return (isFinished() ? finishedAt : now) - startedAt;
+    }
+    
+    /**
+     * Processed (done or failed) users per minute since the run started.
+     */
+    public double getThroughputPerMinute(long now) {
+        long elapsed = Math.max(1, getElapsedMillis(now));
+        return (done.get() + failed.get()) * 60_000.0 / elapsed;
+    }
+    
+    @Override
+    public String toString() {
+        long now = System.currentTimeMillis();
+        return String.format("%d/%d processed, %d failed, %d remaining, %.1f users/min",
+                total - getRemaining(), total, getFailed(), getRemaining(), getThroughputPerMinute(now));
+    }
+}
@@ -0,0 +1,146 @@
+package com.habittracker.scheduler;
+
+import com.habittracker.model.JobCheckpoint;
+import com.habittracker.repository.JobCheckpointRepository;
+import com.habittracker.repository.UserRepository;
+import com.habittracker.service.UserDailySummaryService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reconstructs {@code user_daily_summary} from {@code habit_logs}, one transaction per
+ * user, spread over a small pool. After startup it backfills every user once, for history
+ * that predates the table; {@link #rebuildAll} recounts everyone, e.g. after logs were
+ * changed outside the application. Rebuilding is idempotent, but a user's log writes made while their
+ * rebuild runs may be missed, so run full rebuilds when traffic is low.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ManagedResource(objectName = "com.habittracker:type=UserDailySummaryRebuildJob")
+public class UserDailySummaryRebuildJob {
+    static final String BACKFILL_JOB_NAME = "user-daily-summary-backfill";
+    
+    private final UserRepository userRepository;
+    private final JobCheckpointRepository jobCheckpointRepository;
+    private final UserDailySummaryService userDailySummaryService;
+    
+    @Value("${user-daily-summary.backfill.enabled:true}")
+    private boolean backfillEnabled;
+    
+    @Value("${user-daily-summary.backfill.page-size:500}")
+    private int pageSize;
+    
+    @Value("${user-daily-summary.rebuild.parallelism:4}")
+    private int parallelism;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (backfillEnabled) {
+            backfill();
+        }
+    }
+    
+    /**
+     * Rebuilds every user once, in pages of ids, storing the last finished page in
+     * {@code job_checkpoints}: a restart continues after it, and once the backfill has
+     * completed later startups skip it. Users are not picked by whether they have summary
+     * rows, since one log written before the backfill reaches a user gives them a row
+     * without covering the rest of their history. A page in which any user fails stops
+     * the backfill until the next startup.
+     */
+    public CompletableFuture<Void> backfill() {
+        JobCheckpoint checkpoint = jobCheckpointRepository.findById(BACKFILL_JOB_NAME).orElseGet(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            return JobCheckpoint.builder()
+                    .jobName(BACKFILL_JOB_NAME)
+                    .lastId(0L)
+                    .startedAt(now)
+                    .updatedAt(now)
+                    .completed(false)
+                    .build();
+        });
+        if (checkpoint.getCompleted()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        log.info("Backfilling daily summaries after user {}", checkpoint.getLastId());
+        ExecutorService coordinator = Executors.newSingleThreadExecutor();
+        return CompletableFuture.runAsync(() -> {
+            List<Long> userIds = userRepository.findIdsAfter(checkpoint.getLastId(), Limit.of(pageSize));
+            while (!userIds.isEmpty()) {
+                int failed = rebuildUsers(userIds).join();
+                if (failed > 0) {
+                    log.error("Stopped daily summary backfill after user {}, resuming on next startup", checkpoint.getLastId());
+                    return;
+                }
+                
+                checkpoint.setLastId(userIds.get(userIds.size() - 1));
+                checkpoint.setUpdatedAt(LocalDateTime.now());
+                jobCheckpointRepository.save(checkpoint);
+                userIds = userRepository.findIdsAfter(checkpoint.getLastId(), Limit.of(pageSize));
+            }
+            
+            checkpoint.setCompleted(true);
+            checkpoint.setUpdatedAt(LocalDateTime.now());
+            jobCheckpointRepository.save(checkpoint);
+            log.info("Completed daily summary backfill");
+        }, coordinator).whenComplete((result, error) -> coordinator.shutdown());
+    }
+    
+    @ManagedOperation(description = "Rebuild every user's daily summary from habit_logs")
+    public void rebuildAll() {
+        rebuild(userRepository.findAllIds());
+    }
+    
+    public CompletableFuture<Void> rebuild(List<Long> userIds) {
+        return rebuildUsers(userIds).thenApply(failed -> null);
+    }
+    
+    /**
+     * Completes with the number of users whose rebuild failed.
+     */
+    private CompletableFuture<Integer> rebuildUsers(List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return CompletableFuture.completedFuture(0);
+        }
+        
+        log.info("Rebuilding daily summaries for {} users with parallelism {}", userIds.size(), parallelism);
+        
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        AtomicInteger failed = new AtomicInteger();
+        long startedAt = System.currentTimeMillis();
+        
+        CompletableFuture<?>[] tasks = userIds.stream()
+                .map(userId -> CompletableFuture.runAsync(() -> {
+                    try {
+                        userDailySummaryService.rebuild(userId);
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                        log.error("Error rebuilding daily summary for user {}: {}", userId, e.getMessage());
+                    }
+                }, executor))
+                .toArray(CompletableFuture[]::new);
+        
+        return CompletableFuture.allOf(tasks).thenApply(result -> {
+            executor.shutdown();
+            log.info("Completed daily summary rebuild: {} users, {} failed, {} ms",
+                    userIds.size(), failed.get(), System.currentTimeMillis() - startedAt);
+            return failed.get();
+        });
+    }
+}
@@ -0,0 +1,22 @@
+package com.habittracker.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.security.Principal;
+
+/**
+ * Principal placed in the {@code SecurityContext} by {@link JwtAuthenticationFilter},
+ * built from the verified token so controllers never re-read the Authorization header.
+ */
+@Getter
+@AllArgsConstructor
+public class AuthenticatedUser implements Principal {
+    private final Long userId;
+    private final String email;
+    
+    @Override
+    public String getName() {
+        return email;
+    }
+}
@@ -1,5 +1,6 @@
 package com.habittracker.security;
 
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -7,7 +8,10 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -16,13 +20,29 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
 
+/**
+ * Authenticates requests carrying a bearer token. With {@code spring.security.jwt.stateless}
+ * the principal is built from the verified claims alone; every account has the same
+ * {@code ROLE_USER} authority, so the users table is not read on each request. Deleted
+ * accounts are then rejected through {@link UserStatusCache} once its TTL has passed.
+ */
 @Component
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
+    private static final List<GrantedAuthority> USER_AUTHORITIES = List.of(new SimpleGrantedAuthority("ROLE_USER"));
     private final JwtTokenProvider tokenProvider;
     private final UserDetailsService userDetailsService;
+    private final UserStatusCache userStatusCache;
+    
+    @Value("${spring.security.jwt.stateless:true}")
+    private boolean stateless;
+    
+    @Value("${spring.security.jwt.user-check.enabled:true}")
+    private boolean userCheckEnabled;
     
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -30,15 +50,20 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String token = getTokenFromRequest(request);
             
-            if (token != null && tokenProvider.validateToken(token)) {
-                String email = tokenProvider.getEmailFromToken(token);
-                UserDetails userDetails = userDetailsService.loadUserByUsername(email);
+            if (token != null) {
+                JwtClaims claims = tokenProvider.parse(token);
+                Collection<? extends GrantedAuthority> authorities = resolveAuthorities(claims);
                 
-                UsernamePasswordAuthenticationToken authentication = 
-                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+                if (authorities != null) {
+                    AuthenticatedUser principal = new AuthenticatedUser(claims.getUserId(), claims.getEmail());
+                    UsernamePasswordAuthenticationToken authentication = 
+                            new UsernamePasswordAuthenticationToken(principal, null, authorities);
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                }
             }
+        } catch (JwtException e) {
+            logger.debug("Rejected JWT: {}", e.getMessage());
         } catch (Exception e) {
             logger.error("Cannot set user authentication: {}", e.getMessage());
             // Don't set authentication - will be handled by Spring Security
@@ -47,6 +72,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
     
+    /**
+     * Returns the authorities for a verified token, or null if its user no longer exists.
+     */
+    private Collection<? extends GrantedAuthority> resolveAuthorities(JwtClaims claims) {
+        if (!stateless) {
+            UserDetails userDetails = userDetailsService.loadUserByUsername(claims.getEmail());
+            return userDetails.getAuthorities();
+        }
+        
+        if (userCheckEnabled && !userStatusCache.isActive(claims.getUserId())) {
+            logger.debug("Rejected JWT for missing user {}", claims.getUserId());
+            return null;
+        }
+        return USER_AUTHORITIES;
+    }
+    
     private String getTokenFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (bearerToken != null && bearerToken.startsWith("Bearer ")) {
@@ -0,0 +1,14 @@
+package com.habittracker.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Date;
+
+@Getter
+@AllArgsConstructor
+public class JwtClaims {
+    private final String email;
+    private final Long userId;
+    private final Date expiration;
+}
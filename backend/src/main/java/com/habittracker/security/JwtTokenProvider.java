@@ -1,6 +1,8 @@
 package com.habittracker.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
@@ -12,14 +14,17 @@ import java.util.Date;
 
 @Component
 public class JwtTokenProvider {
-    @Value("${spring.security.jwt.secret}")
-    private String jwtSecret;
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final long jwtExpiration;
     
-    @Value("${spring.security.jwt.expiration}")
-    private long jwtExpiration;
-    
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+    public JwtTokenProvider(@Value("${spring.security.jwt.secret}") String jwtSecret,
+                            @Value("${spring.security.jwt.expiration}") long jwtExpiration) {
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+        this.jwtExpiration = jwtExpiration;
     }
     
     public String generateToken(String email, Long userId) {
@@ -31,38 +36,17 @@ public class JwtTokenProvider {
                 .claim("userId", userId)
                 .issuedAt(now)
                 .expiration(expiryDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
     
-    public String getEmailFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-        return claims.getSubject();
-    }
-    
-    public Long getUserIdFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-        return claims.get("userId", Long.class);
-    }
-    
-    public boolean validateToken(String token) {
-        try {
-            Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
+    /**
+     * Verifies the token's signature and expiry and returns its claims.
+     *
+     * @throws JwtException if the token is invalid or expired
+     */
+    public JwtClaims parse(String token) {
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        return new JwtClaims(claims.getSubject(), claims.get("userId", Long.class), claims.getExpiration());
     }
 }
-
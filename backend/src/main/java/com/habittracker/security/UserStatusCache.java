@@ -0,0 +1,71 @@
+package com.habittracker.security;
+
+import com.habittracker.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Short-lived, size-bounded cache of "does this user still exist" answers for the
+ * stateless authentication path. A deleted account keeps working for at most
+ * {@code spring.security.jwt.user-check.ttl} after deletion.
+ */
+@Component
+public class UserStatusCache {
+    private final UserRepository userRepository;
+    private final long ttlNanos;
+    private final int maxSize;
+    private final LongSupplier ticker;
+    private final Map<Long, Entry> entries;
+    
+    @Autowired
+    public UserStatusCache(UserRepository userRepository,
+                           @Value("${spring.security.jwt.user-check.ttl:30s}") Duration ttl,
+                           @Value("${spring.security.jwt.user-check.max-size:10000}") int maxSize) {
+        this(userRepository, ttl, maxSize, System::nanoTime);
+    }
+    
+    UserStatusCache(UserRepository userRepository, Duration ttl, int maxSize, LongSupplier ticker) {
+        this.userRepository = userRepository;
+        this.ttlNanos = ttl.toNanos();
+        this.maxSize = maxSize;
+        this.ticker = ticker;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > UserStatusCache.this.maxSize;
+            }
+        };
+    }
+    
+    public boolean isActive(Long userId) {
+        long now = ticker.getAsLong();
+        synchronized (entries) {
+            Entry entry = entries.get(userId);
+            if (entry != null && now - entry.checkedAt < ttlNanos) {
+                return entry.active;
+            }
+        }
+        
+        boolean active = userRepository.existsById(userId);
+        synchronized (entries) {
+            entries.put(userId, new Entry(active, now));
+        }
+        return active;
+    }
+    
+    private static final class Entry {
+        private final boolean active;
+        private final long checkedAt;
+        
+        private Entry(boolean active, long checkedAt) {
+            this.active = active;
+            this.checkedAt = checkedAt;
+        }
+    }
+}
@@ -2,39 +2,52 @@ package com.habittracker.service;
 
 import com.habittracker.ai.OllamaService;
 import com.habittracker.dto.AIReportResponse;
+import com.habittracker.dto.AIReportStreamEvent;
 import com.habittracker.model.AIReport;
 import com.habittracker.model.Habit;
-import com.habittracker.model.HabitLog;
 import com.habittracker.model.User;
 import com.habittracker.repository.AIReportRepository;
+import com.habittracker.repository.HabitLogCounts;
 import com.habittracker.repository.HabitLogRepository;
 import com.habittracker.repository.HabitRepository;
 import com.habittracker.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AIReportService {
+    static final String NO_HABITS_MESSAGE = "Add a habit to get a weekly report.";
+    
     private final AIReportRepository aiReportRepository;
     private final UserRepository userRepository;
     private final HabitRepository habitRepository;
     private final HabitLogRepository habitLogRepository;
+    // A proxy, so the WebClient stack is only built on the first AI call rather than at startup
+    @Lazy
     private final OllamaService ollamaService;
     
+    @Transactional(readOnly = true)
     public List<AIReportResponse> getUserReports(Long userId) {
         return aiReportRepository.findByUserIdOrderByCreatedAtDesc(userId).stream()
                 .map(this::mapToResponse)
                 .collect(Collectors.toList());
     }
     
+    @Transactional(readOnly = true)
     public AIReportResponse getLatestReport(Long userId) {
         List<AIReport> reports = aiReportRepository.findByUserIdOrderByCreatedAtDesc(userId);
         if (reports.isEmpty()) {
@@ -43,8 +56,64 @@ public class AIReportService {
         return mapToResponse(reports.get(0));
     }
     
-    @Transactional
+    /**
+     * Not transactional: the Ollama call can take tens of seconds, and holding a pooled
+     * connection for it would cap report parallelism at the connection pool size.
+     */
     public void generateWeeklyReportForUser(Long userId) {
+        generateWeeklyReportForUserAsync(userId).block();
+    }
+    
+    /**
+     * Non-blocking variant: the database work runs on the bounded elastic scheduler and
+     * no thread waits while Ollama generates. Completes empty if the user has no habits.
+     */
+    public Mono<Void> generateWeeklyReportForUserAsync(Long userId) {
+        return Mono.fromCallable(() -> prepareWeeklyReport(userId))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(draft -> ollamaService.generateWeeklyCoachingReportAsync(draft.habitData())
+                        .publishOn(Schedulers.boundedElastic())
+                        .doOnNext(feedbackText -> {
+                            aiReportRepository.save(draft.toReport(feedbackText));
+                            log.info("Generated weekly AI report for user {}", userId);
+                        }))
+                .then();
+    }
+    
+    /**
+     * Streams a new weekly report for the user as it is generated, then stores the full
+     * text and ends with the stored report. Nothing is stored if the stream fails or
+     * the client disconnects first. The report data is loaded on subscription, so a
+     * missing user fails the stream rather than this call, and a user with no habits
+     * gets a single {@code error} event.
+     */
+    public Flux<AIReportStreamEvent> streamWeeklyReport(Long userId) {
+        return Mono.fromCallable(() -> prepareWeeklyReport(userId))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(draft -> {
+                    StringBuilder feedbackText = new StringBuilder();
+                    Mono<AIReportStreamEvent> saveReport = Mono.fromCallable(() -> {
+                        if (feedbackText.toString().isBlank()) {
+                            throw new RuntimeException("Empty response from Ollama");
+                        }
+                        AIReport report = aiReportRepository.save(draft.toReport(feedbackText.toString().trim()));
+                        log.info("Streamed weekly AI report for user {}", userId);
+                        return AIReportStreamEvent.report(mapToResponse(report));
+                    }).subscribeOn(Schedulers.boundedElastic());
+                    
+                    return ollamaService.streamWeeklyCoachingReport(draft.habitData())
+                            .doOnNext(feedbackText::append)
+                            .map(AIReportStreamEvent::token)
+                            .concatWith(saveReport);
+                })
+                .switchIfEmpty(Flux.just(AIReportStreamEvent.error(NO_HABITS_MESSAGE)));
+    }
+    
+    /**
+     * Loads what the weekly report prompt needs, or returns null if the user has no habits.
+     * Three queries however many habits the user has.
+     */
+    private WeeklyReportDraft prepareWeeklyReport(Long userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
@@ -54,32 +123,25 @@ public class AIReportService {
         List<Habit> habits = habitRepository.findByUserId(userId);
         if (habits.isEmpty()) {
             log.info("No habits found for user {}, skipping report generation", userId);
-            return;
+            return null;
         }
         
+        Map<Long, HabitLogCounts> countsByHabit = new HashMap<>();
+        habitLogRepository.countByHabitForUserAndDateBetween(userId, startDate, endDate)
+                .forEach(counts -> countsByHabit.put(counts.getHabitId(), counts));
+        
         StringBuilder habitData = new StringBuilder();
         for (Habit habit : habits) {
-            List<HabitLog> logs = habitLogRepository.findByHabitIdAndDateBetween(
-                    habit.getId(), startDate, endDate);
-            
-            long completed = logs.stream().filter(HabitLog::getStatus).count();
-            double consistency = logs.isEmpty() ? 0.0 : (double) completed / logs.size() * 100;
+            HabitLogCounts counts = countsByHabit.get(habit.getId());
+            long logged = counts != null ? counts.getLogged() : 0;
+            long completed = counts != null ? counts.getCompleted() : 0;
+            double consistency = logged == 0 ? 0.0 : (double) completed / logged * 100;
             
             habitData.append(String.format("- %s (%s): %.1f%% consistency, %d/%d days completed\n",
-                    habit.getTitle(), habit.getCategory(), consistency, completed, logs.size()));
+                    habit.getTitle(), habit.getCategory(), consistency, completed, logged));
         }
         
-        String feedbackText = ollamaService.generateWeeklyCoachingReport(habitData.toString());
-        
-        AIReport report = AIReport.builder()
-                .user(user)
-                .startDate(startDate)
-                .endDate(endDate)
-                .feedbackText(feedbackText)
-                .build();
-        
-        aiReportRepository.save(report);
-        log.info("Generated weekly AI report for user {}", userId);
+        return new WeeklyReportDraft(user, startDate, endDate, habitData.toString());
     }
     
     public String generateMotivationalMessage(Long userId, String context) {
@@ -95,5 +157,15 @@ public class AIReportService {
                 .createdAt(report.getCreatedAt())
                 .build();
     }
+    
+    private record WeeklyReportDraft(User user, LocalDate startDate, LocalDate endDate, String habitData) {
+        AIReport toReport(String feedbackText) {
+            return AIReport.builder()
+                    .user(user)
+                    .startDate(startDate)
+                    .endDate(endDate)
+                    .feedbackText(feedbackText)
+                    .build();
+        }
+    }
 }
-
@@ -0,0 +1,240 @@
+package com.habittracker.service;
+
+import com.habittracker.dto.AnalyticsResponse;
+import com.habittracker.dto.CompactAnalyticsResponse;
+import com.habittracker.event.HabitDataChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Bounded in-process cache of {@link AnalyticsResponse} per user. Entries are evicted
+ * least-recently-used once {@code analytics.cache.max-size} is reached, after
+ * {@code analytics.cache.idle-timeout} without access, when the user's habit data
+ * changes, and when the date rolls over (streaks are relative to "today"). Every caller
+ * gets its own copy of the response, so one that modifies it cannot change what the
+ * next request for the user is served.
+ */
+@Component
+@Slf4j
+@ManagedResource(objectName = "com.habittracker:type=AnalyticsCache")
+public class AnalyticsCache {
+    private static final int VERSION_STRIPES = 64;
+    
+    private final boolean enabled;
+    private final int maxSize;
+    private final long idleTimeoutNanos;
+    private final LongSupplier ticker;
+    private final Supplier<LocalDate> today;
+    
+    private final Map<Long, Entry> entries;
+    // Bumped on invalidation so that a computation which started before a write is not stored.
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+    
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    
+    @Autowired
+    public AnalyticsCache(@Value("${analytics.cache.enabled:true}") boolean enabled,
+                          @Value("${analytics.cache.max-size:10000}") int maxSize,
+                          @Value("${analytics.cache.idle-timeout:PT30M}") Duration idleTimeout) {
+        this(enabled, maxSize, idleTimeout, System::nanoTime, LocalDate::now);
+    }
+    
+    AnalyticsCache(boolean enabled, int maxSize, Duration idleTimeout, LongSupplier ticker, Supplier<LocalDate> today) {
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.ticker = ticker;
+        this.today = today;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() > AnalyticsCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    public AnalyticsResponse getOrCompute(Long userId, Supplier<AnalyticsResponse> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        
+        LocalDate day = today.get();
+        synchronized (entries) {
+            Entry entry = entries.get(userId);
+            if (entry != null) {
+                long now = ticker.getAsLong();
+                if (entry.day.equals(day) && !isIdle(entry, now)) {
+                    entry.lastAccess = now;
+                    hits.incrementAndGet();
+                    return copyOf(entry.value);
+                }
+                entries.remove(userId);
+                evictions.incrementAndGet();
+            }
+        }
+        
+        misses.incrementAndGet();
+        int stripe = stripe(userId);
+        long version = versions.get(stripe);
+        AnalyticsResponse value = loader.get();
+        
+        synchronized (entries) {
+            if (versions.get(stripe) == version) {
+                entries.put(userId, new Entry(copyOf(value), day, ticker.getAsLong()));
+            }
+        }
+        return value;
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onHabitDataChanged(HabitDataChangedEvent event) {
+        invalidate(event.getUserId());
+    }
+    
+    public void invalidate(Long userId) {
+        synchronized (entries) {
+            versions.incrementAndGet(stripe(userId));
+            if (entries.remove(userId) != null) {
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+    
+    @ManagedOperation
+    @Scheduled(cron = "${analytics.cache.rollover-cron:0 0 0 * * *}", zone = "${analytics.cache.zone:}")
+    public void clear() {
+        synchronized (entries) {
+            for (int i = 0; i < VERSION_STRIPES; i++) {
+                versions.incrementAndGet(i);
+            }
+            evictions.addAndGet(entries.size());
+            entries.clear();
+        }
+        log.debug("Cleared analytics cache");
+    }
+    
+    @Scheduled(fixedDelayString = "${analytics.cache.sweep-interval:PT1M}")
+    public void evictIdleEntries() {
+        long now = ticker.getAsLong();
+        synchronized (entries) {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (isIdle(iterator.next(), now)) {
+                    iterator.remove();
+                    evictions.incrementAndGet();
+                }
+            }
+        }
+    }
+    
+    @ManagedAttribute
+    public long getHits() {
+        return hits.get();
+    }
+    
+    @ManagedAttribute
+    public long getMisses() {
+        return misses.get();
+    }
+    
+    @ManagedAttribute
+    public long getEvictions() {
+        return evictions.get();
+    }
+    
+    @ManagedAttribute
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+    
+    @ManagedAttribute
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+    
+    private boolean isIdle(Entry entry, long now) {
+        return now - entry.lastAccess > idleTimeoutNanos;
+    }
+    
+    static AnalyticsResponse copyOf(AnalyticsResponse value) {
+        CompactAnalyticsResponse compact = value.getCompact();
+        return value.toBuilder()
+                .categoryStreaks(copyOf(value.getCategoryStreaks()))
+                .categoryConsistency(copyOf(value.getCategoryConsistency()))
+                .weeklyTrend(copyOf(value.getWeeklyTrend()))
+                .heatmapData(copyOf(value.getHeatmapData()))
+                .compact(compact == null ? null : copyOf(compact))
+                .build();
+    }
+    
+    private static CompactAnalyticsResponse copyOf(CompactAnalyticsResponse compact) {
+        CompactAnalyticsResponse.WeeklySeries weeklyTrend = compact.getWeeklyTrend();
+        return compact.toBuilder()
+                .categoryStreaks(copyOf(compact.getCategoryStreaks()))
+                .categoryConsistency(copyOf(compact.getCategoryConsistency()))
+                .heatmap(compact.getHeatmap() == null ? null : compact.getHeatmap().toBuilder().build())
+                .weeklyTrend(weeklyTrend == null ? null : weeklyTrend.toBuilder()
+                        .logged(weeklyTrend.getLogged() == null ? null : weeklyTrend.getLogged().clone())
+                        .completed(weeklyTrend.getCompleted() == null ? null : weeklyTrend.getCompleted().clone())
+                        .build())
+                .build();
+    }
+    
+    private static List<AnalyticsResponse.WeeklyData> copyOf(List<AnalyticsResponse.WeeklyData> weeks) {
+        if (weeks == null) return null;
+        
+        List<AnalyticsResponse.WeeklyData> copy = new ArrayList<>(weeks.size());
+        for (AnalyticsResponse.WeeklyData week : weeks) {
+            copy.add(week.toBuilder().build());
+        }
+        return copy;
+    }
+    
+    private static <K, V> Map<K, V> copyOf(Map<K, V> map) {
+        return map == null ? null : new LinkedHashMap<>(map);
+    }
+    
+    private static int stripe(Long userId) {
+        return (int) (userId & (VERSION_STRIPES - 1));
+    }
+    
+    private static final class Entry {
+        private final AnalyticsResponse value;
+        private final LocalDate day;
+        private long lastAccess;
+        
+        private Entry(AnalyticsResponse value, LocalDate day, long lastAccess) {
+            this.value = value;
+            this.day = day;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
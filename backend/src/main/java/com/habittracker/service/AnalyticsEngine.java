@@ -0,0 +1,144 @@
+package com.habittracker.service;
+
+import com.habittracker.dto.AnalyticsResponse;
+import com.habittracker.dto.AnalyticsResponse.WeeklyData;
+import com.habittracker.dto.CompactAnalyticsResponse;
+import com.habittracker.dto.CompactAnalyticsResponse.DailySeries;
+import com.habittracker.dto.CompactAnalyticsResponse.WeeklySeries;
+import com.habittracker.model.Habit;
+import com.habittracker.repository.HabitLogCategoryCounts;
+import com.habittracker.repository.HabitLogDayCounts;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.function.ToLongFunction;
+
+/**
+ * Computes every {@link AnalyticsResponse} field from pre-grouped rows: logged and completed
+ * counts per day from the {@code user_daily_summary} rollup (heatmap, weekly trend, overall
+ * consistency) and per category, which the database aggregates, plus each habit's
+ * current streak from {@code habit_stats}. Heap use scales with the number of days and
+ * categories, not the number of logs. Weeks are folded from the day rows into primitive
+ * counters; Strings are created once per day/week/category bucket. The compact form is
+ * encoded from bitmaps and the week counters directly, without going through those Strings.
+ */
+public final class AnalyticsEngine {
+    private static final DateTimeFormatter WEEK_FORMATTER = DateTimeFormatter.ofPattern("MMM dd");
+    private static final int TREND_WEEKS = 12;
+    
+    private AnalyticsEngine() {
+    }
+    
+    /**
+     * @param days          counts of the days within {@code [startDate, endDate]} that have logs
+     * @param categories    counts per category over the same range
+     * @param currentStreak consecutive completed days ending at {@code endDate}, per habit id
+     */
+    public static AnalyticsResponse compute(List<Habit> habits,
+                                            List<? extends HabitLogDayCounts> days,
+                                            List<? extends HabitLogCategoryCounts> categories,
+                                            LocalDate startDate, LocalDate endDate,
+                                            ToLongFunction<Long> currentStreak) {
+        long startEpoch = startDate.toEpochDay();
+        long firstWeekEpoch = startEpoch - (startDate.getDayOfWeek().getValue() - 1);
+        int weeks = (int) ((endDate.toEpochDay() - firstWeekEpoch) / 7) + 1;
+        
+        long totalStreak = 0;
+        Map<String, Long> categoryStreaks = new HashMap<>();
+        Map<String, Double> categoryConsistency = new HashMap<>();
+        for (Habit habit : habits) {
+            long streak = currentStreak.applyAsLong(habit.getId());
+            totalStreak = Math.max(totalStreak, streak);
+            categoryStreaks.merge(habit.getCategory(), streak, Math::max);
+            categoryConsistency.put(habit.getCategory(), 0.0);
+        }
+        
+        for (HabitLogCategoryCounts category : categories) {
+            categoryConsistency.put(category.getCategory(), percentage(category.getCompleted(), category.getLogged()));
+        }
+        
+        int dayCount = (int) (endDate.toEpochDay() - startEpoch) + 1;
+        byte[] loggedDays = new byte[(dayCount + 7) / 8];
+        byte[] completedDays = new byte[(dayCount + 7) / 8];
+        long[] weekLogged = new long[weeks];
+        long[] weekCompleted = new long[weeks];
+        long totalLogged = 0;
+        long totalCompleted = 0;
+        Map<String, Integer> heatmapData = new HashMap<>();
+        for (HabitLogDayCounts day : days) {
+            totalLogged += day.getLogged();
+            totalCompleted += day.getCompleted();
+            long epochDay = day.getDate().toEpochDay();
+            int week = (int) ((epochDay - firstWeekEpoch) / 7);
+            weekLogged[week] += day.getLogged();
+            weekCompleted[week] += day.getCompleted();
+            // A day is marked done when every habit logged that day was completed
+            boolean done = day.getCompleted().equals(day.getLogged());
+            heatmapData.put(day.getDate().toString(), done ? 1 : 0);
+            
+            int index = (int) (epochDay - startEpoch);
+            loggedDays[index >> 3] |= (byte) (1 << (index & 7));
+            if (done) {
+                completedDays[index >> 3] |= (byte) (1 << (index & 7));
+            }
+        }
+        
+        List<WeeklyData> weeklyData = new ArrayList<>();
+        for (int week = 0; week < weeks; week++) {
+            if (weekLogged[week] == 0) continue;
+            
+            weeklyData.add(WeeklyData.builder()
+                    .week(LocalDate.ofEpochDay(firstWeekEpoch + week * 7L).format(WEEK_FORMATTER))
+                    .consistency(percentage(weekCompleted[week], weekLogged[week]))
+                    .completedDays((int) weekCompleted[week])
+                    .build());
+        }
+        weeklyData.sort(Comparator.comparing(WeeklyData::getWeek));
+        List<WeeklyData> weeklyTrend = weeklyData.size() > TREND_WEEKS
+                ? weeklyData.subList(weeklyData.size() - TREND_WEEKS, weeklyData.size()) : weeklyData;
+        
+        int firstTrendWeek = Math.max(0, weeks - TREND_WEEKS);
+        int[] trendLogged = new int[weeks - firstTrendWeek];
+        int[] trendCompleted = new int[weeks - firstTrendWeek];
+        for (int week = firstTrendWeek; week < weeks; week++) {
+            trendLogged[week - firstTrendWeek] = (int) weekLogged[week];
+            trendCompleted[week - firstTrendWeek] = (int) weekCompleted[week];
+        }
+        
+        Base64.Encoder base64 = Base64.getEncoder();
+        double overallConsistency = percentage(totalCompleted, totalLogged);
+        CompactAnalyticsResponse compact = CompactAnalyticsResponse.builder()
+                .overallConsistency(overallConsistency)
+                .totalStreak(totalStreak)
+                .categoryStreaks(categoryStreaks)
+                .categoryConsistency(categoryConsistency)
+                .heatmap(DailySeries.builder()
+                        .startDate(startDate)
+                        .days(dayCount)
+                        .logged(base64.encodeToString(loggedDays))
+                        .completed(base64.encodeToString(completedDays))
+                        .build())
+                .weeklyTrend(WeeklySeries.builder()
+                        .startDate(LocalDate.ofEpochDay(firstWeekEpoch + firstTrendWeek * 7L))
+                        .weeks(trendLogged.length)
+                        .logged(trendLogged)
+                        .completed(trendCompleted)
+                        .build())
+                .build();
+        
+        return AnalyticsResponse.builder()
+                .overallConsistency(overallConsistency)
+                .totalStreak(totalStreak)
+                .categoryStreaks(categoryStreaks)
+                .categoryConsistency(categoryConsistency)
+                .weeklyTrend(weeklyTrend)
+                .heatmapData(heatmapData)
+                .compact(compact)
+                .build();
+    }
+    
+    private static double percentage(long completed, long logged) {
+        return logged == 0 ? 0.0 : (double) completed / logged * 100;
+    }
+}
@@ -0,0 +1,110 @@
+package com.habittracker.service;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Helpers for the day-of-year bitmaps stored in {@code habit_calendars}. Bit {@code i}
+ * of a mask stands for day {@code i + 1} of the year, so a mask of 6 longs covers
+ * leap years as well.
+ */
+public final class CalendarBits {
+    public static final int WORDS = 6;
+    public static final int BITS = WORDS * Long.SIZE;
+    
+    private CalendarBits() {
+    }
+    
+    public static long[] empty() {
+        return new long[WORDS];
+    }
+    
+    public static boolean get(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+    
+    public static void set(long[] bits, int index, boolean value) {
+        if (value) {
+            bits[index >>> 6] |= 1L << index;
+        } else {
+            bits[index >>> 6] &= ~(1L << index);
+        }
+    }
+    
+    public static int count(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+    
+    /**
+     * Index of the first set bit at or after {@code from}, or -1 if there is none.
+     */
+    public static int nextSetBit(long[] bits, int from) {
+        if (from >= BITS) return -1;
+        
+        int wordIndex = from >>> 6;
+        long word = bits[wordIndex] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++wordIndex == WORDS) {
+                return -1;
+            }
+            word = bits[wordIndex];
+        }
+    }
+    
+    /**
+     * Index of the first clear bit at or after {@code from}; {@link #BITS} if all
+     * remaining bits are set.
+     */
+    public static int nextClearBit(long[] bits, int from) {
+        if (from >= BITS) return BITS;
+        
+        int wordIndex = from >>> 6;
+        long word = ~bits[wordIndex] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++wordIndex == WORDS) {
+                return BITS;
+            }
+            word = ~bits[wordIndex];
+        }
+    }
+    
+    /**
+     * Index of the highest set bit, or -1 if the mask is empty.
+     */
+    public static int lastSetBit(long[] bits) {
+        for (int wordIndex = WORDS - 1; wordIndex >= 0; wordIndex--) {
+            if (bits[wordIndex] != 0) {
+                return (wordIndex << 6) + 63 - Long.numberOfLeadingZeros(bits[wordIndex]);
+            }
+        }
+        return -1;
+    }
+    
+    public static byte[] toBytes(long[] bits) {
+        ByteBuffer buffer = ByteBuffer.allocate(WORDS * Long.BYTES);
+        for (long word : bits) {
+            buffer.putLong(word);
+        }
+        return buffer.array();
+    }
+    
+    public static long[] fromBytes(byte[] bytes) {
+        long[] bits = empty();
+        if (bytes == null) return bits;
+        
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        for (int i = 0; i < WORDS && buffer.remaining() >= Long.BYTES; i++) {
+            bits[i] = buffer.getLong();
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,163 @@
+package com.habittracker.service;
+
+import com.habittracker.model.HabitCalendar;
+import com.habittracker.model.HabitCalendarId;
+import com.habittracker.model.HabitStats;
+import com.habittracker.repository.HabitCalendarRepository;
+import com.habittracker.repository.HabitLogDay;
+import com.habittracker.repository.HabitLogRepository;
+import com.habittracker.repository.HabitStatsRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bitmap representation of habit history ({@code habit_calendars}), kept alongside
+ * {@code habit_logs}. The {@code habit-calendar.mode} setting drives the rollout:
+ * <ul>
+ *   <li>{@code off} - calendars are neither written nor read</li>
+ *   <li>{@code dual-write} - every log write also updates the calendar; reads use logs</li>
+ *   <li>{@code verify} - reads compute from both sources, log any mismatch and return the log result</li>
+ *   <li>{@code bitmap} - reads use calendars only</li>
+ * </ul>
+ * Existing history is copied over by {@code HabitCalendarMigrationJob}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HabitCalendarService {
+    public enum Mode {
+        OFF, DUAL_WRITE, VERIFY, BITMAP;
+        
+        public boolean writesCalendar() {
+            return this != OFF;
+        }
+    }
+    
+    private final HabitCalendarRepository habitCalendarRepository;
+    private final HabitLogRepository habitLogRepository;
+    private final HabitStatsRepository habitStatsRepository;
+    
+    @Value("${habit-calendar.mode:off}")
+    private Mode mode;
+    
+    public Mode getMode() {
+        return mode;
+    }
+    
+    @Transactional
+    public void record(Long habitId, LocalDate date, boolean status) {
+        if (!mode.writesCalendar()) return;
+        
+        habitStatsRepository.findByIdForUpdate(habitId);
+        int year = date.getYear();
+        HabitCalendar calendar = habitCalendarRepository.findById(new HabitCalendarId(habitId, year))
+                .orElseGet(() -> HabitCalendar.empty(habitId, year));
+        
+        long[] logged = calendar.loggedBits();
+        long[] completed = calendar.completedBits();
+        int index = date.getDayOfYear() - 1;
+        CalendarBits.set(logged, index, true);
+        CalendarBits.set(completed, index, status);
+        calendar.setBits(logged, completed);
+        
+        habitCalendarRepository.save(calendar);
+    }
+    
+    @Transactional
+    public void delete(Long habitId) {
+        habitCalendarRepository.deleteByHabitId(habitId);
+    }
+    
+    /**
+     * Rewrites the habit's calendars from {@code habit_logs}. Holds the habit's stats
+     * row lock, which every log write also takes, so concurrent check-ins are not lost.
+     */
+    @Transactional
+    public void rebuild(Long habitId) {
+        habitStatsRepository.findByIdForUpdate(habitId);
+        
+        Map<Integer, long[][]> years = new HashMap<>();
+        for (HabitLogDay day : habitLogRepository.findDaysByHabitId(habitId)) {
+            long[][] masks = years.computeIfAbsent(day.getDate().getYear(),
+                    year -> new long[][]{CalendarBits.empty(), CalendarBits.empty()});
+            int index = day.getDate().getDayOfYear() - 1;
+            CalendarBits.set(masks[0], index, true);
+            CalendarBits.set(masks[1], index, day.getStatus());
+        }
+        
+        for (HabitCalendar calendar : habitCalendarRepository.findByHabitIdOrderByYear(habitId)) {
+            long[][] masks = years.remove(calendar.getYear());
+            if (masks == null) {
+                habitCalendarRepository.delete(calendar);
+            } else {
+                calendar.setBits(masks[0], masks[1]);
+                habitCalendarRepository.save(calendar);
+            }
+        }
+        
+        years.forEach((year, masks) -> {
+            HabitCalendar calendar = HabitCalendar.empty(habitId, year);
+            calendar.setBits(masks[0], masks[1]);
+            habitCalendarRepository.save(calendar);
+        });
+    }
+    
+    @Transactional(readOnly = true)
+    public HabitStats computeStats(Long habitId) {
+        return computeStats(habitId, habitCalendarRepository.findByHabitIdOrderByYear(habitId));
+    }
+    
+    /**
+     * Same result as folding the habit's log rows, computed from year-ordered calendars
+     * by walking runs of set bits instead of individual days.
+     */
+    static HabitStats computeStats(Long habitId, List<HabitCalendar> calendars) {
+        long logged = 0;
+        long completed = 0;
+        LocalDate lastLogDate = null;
+        long run = 0;
+        long longest = 0;
+        LocalDate runEnd = null;
+        
+        for (HabitCalendar calendar : calendars) {
+            long[] loggedBits = calendar.loggedBits();
+            long[] completedBits = calendar.completedBits();
+            LocalDate firstDay = LocalDate.ofYearDay(calendar.getYear(), 1);
+            
+            logged += CalendarBits.count(loggedBits);
+            completed += CalendarBits.count(completedBits);
+            int lastLogged = CalendarBits.lastSetBit(loggedBits);
+            if (lastLogged >= 0) {
+                lastLogDate = firstDay.plusDays(lastLogged);
+            }
+            
+            int start = CalendarBits.nextSetBit(completedBits, 0);
+            while (start >= 0) {
+                int end = CalendarBits.nextClearBit(completedBits, start);
+                LocalDate runStart = firstDay.plusDays(start);
+                run = runEnd != null && runEnd.plusDays(1).equals(runStart) ? run + (end - start) : end - start;
+                runEnd = firstDay.plusDays(end - 1);
+                longest = Math.max(longest, run);
+                start = CalendarBits.nextSetBit(completedBits, end);
+            }
+        }
+        
+        return HabitStats.builder()
+                .habitId(habitId)
+                .loggedCount(logged)
+                .completedCount(completed)
+                .lastLogDate(lastLogDate)
+                .currentStreak(run)
+                .streakEndDate(runEnd)
+                .longestStreak(longest)
+                .build();
+    }
+}
@@ -0,0 +1,225 @@
+package com.habittracker.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.DatabaseMetaData;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Manages the monthly range partitions of {@code habit_logs} on PostgreSQL (see
+ * {@code db/migration/postgresql/V2__create_habit_logs.sql}). Hot months live in {@code habit_logs_pYYYYMM}; months past
+ * the archive horizon are merged into {@code habit_logs_archive}, a single partition
+ * covering everything before its upper bound, so they stay visible to every
+ * {@code habit_logs} query while the hot partitions and their indexes stay small.
+ * Does nothing when {@code habit_logs} is not partitioned, e.g. on H2.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HabitLogPartitionService {
+    static final String ARCHIVE_PARTITION = "habit_logs_archive";
+    static final String DEFAULT_PARTITION = "habit_logs_default";
+    static final String ARCHIVE_BOUND = "habit_logs_archive_next_bound";
+    private static final Pattern MONTH_PARTITION = Pattern.compile("habit_logs_p(\\d{4})(\\d{2})");
+    private static final Pattern UPPER_BOUND = Pattern.compile("TO \\('(\\d{4}-\\d{2}-\\d{2})'\\)");
+    
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Boolean partitioned;
+    
+    public boolean isPartitioned() {
+        if (partitioned == null) {
+            try {
+                String product = JdbcUtils.extractDatabaseMetaData(jdbcTemplate.getDataSource(), DatabaseMetaData::getDatabaseProductName);
+                partitioned = "PostgreSQL".equals(product) && Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                        "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass('habit_logs'))",
+                        Boolean.class));
+            } catch (Exception e) {
+                throw new RuntimeException("Cannot determine whether habit_logs is partitioned", e);
+            }
+        }
+        return partitioned;
+    }
+    
+    static String partitionName(YearMonth month) {
+        return String.format("habit_logs_p%04d%02d", month.getYear(), month.getMonthValue());
+    }
+    
+    static Optional<YearMonth> partitionMonth(String partitionName) {
+        Matcher matcher = MONTH_PARTITION.matcher(partitionName);
+        return matcher.matches()
+                ? Optional.of(YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))))
+                : Optional.empty();
+    }
+    
+    /**
+     * The upper bound of a partition from its {@code pg_get_expr(relpartbound)} text,
+     * e.g. {@code FOR VALUES FROM (MINVALUE) TO ('2024-02-01')}.
+     */
+    static Optional<LocalDate> upperBound(String partitionBound) {
+        Matcher matcher = UPPER_BOUND.matcher(partitionBound);
+        return matcher.find() ? Optional.of(LocalDate.parse(matcher.group(1))) : Optional.empty();
+    }
+    
+    /**
+     * Month partitions that lie entirely before {@code horizonMonths} whole months before
+     * {@code today}'s month, oldest first.
+     */
+    public static List<YearMonth> monthsToArchive(List<YearMonth> existing, LocalDate today, int horizonMonths) {
+        YearMonth firstHot = YearMonth.from(today).minusMonths(horizonMonths);
+        return existing.stream().filter(month -> month.isBefore(firstHot)).sorted().toList();
+    }
+    
+    /**
+     * Creates the partitions for {@code today}'s month and the {@code monthsAhead} after it
+     * where missing, and for every month with rows in {@code habit_logs_default}, such as
+     * backfilled past months or dates further ahead. Returns the months created.
+     *
+     * <p>PostgreSQL refuses a partition whose range has rows in the default partition, so
+     * each month's rows are moved out of it first, with inserts into it blocked until the
+     * new partition is attached; a {@code CHECK} matching the range lets the attach skip
+     * scanning the new partition.
+     */
+    @Transactional
+    public List<YearMonth> ensurePartitions(LocalDate today, int monthsAhead) {
+        List<YearMonth> created = new ArrayList<>();
+        if (!isPartitioned()) return created;
+        
+        Set<YearMonth> months = new TreeSet<>();
+        for (int i = 0; i <= monthsAhead; i++) {
+            months.add(YearMonth.from(today).plusMonths(i));
+        }
+        boolean hasDefault = hasDefaultPartition();
+        if (hasDefault) {
+            jdbcTemplate.execute("LOCK TABLE " + DEFAULT_PARTITION + " IN SHARE ROW EXCLUSIVE MODE");
+            jdbcTemplate.queryForList("SELECT DISTINCT date_trunc('month', date)::date FROM " + DEFAULT_PARTITION, Date.class)
+                    .forEach(month -> months.add(YearMonth.from(month.toLocalDate())));
+        }
+        months.removeAll(monthPartitions());
+        
+        for (YearMonth month : months) {
+            String partition = partitionName(month);
+            LocalDate from = month.atDay(1);
+            LocalDate to = month.plusMonths(1).atDay(1);
+            jdbcTemplate.execute("CREATE TABLE " + partition + " (LIKE habit_logs)");
+            jdbcTemplate.execute(String.format("ALTER TABLE %s ADD CONSTRAINT %s_range CHECK (date >= '%s' AND date < '%s')",
+                    partition, partition, from, to));
+            if (hasDefault) {
+                jdbcTemplate.update("WITH moved AS (" +
+                        "DELETE FROM " + DEFAULT_PARTITION + " WHERE date >= ? AND date < ? " +
+                        "RETURNING id, habit_id, date, status, user_id) " +
+                        "INSERT INTO " + partition + " (id, habit_id, date, status, user_id) SELECT * FROM moved",
+                        Date.valueOf(from), Date.valueOf(to));
+            }
+            jdbcTemplate.execute(String.format("ALTER TABLE habit_logs ATTACH PARTITION %s FOR VALUES FROM ('%s') TO ('%s')",
+                    partition, from, to));
+            jdbcTemplate.execute(String.format("ALTER TABLE %s DROP CONSTRAINT %s_range", partition, partition));
+            created.add(month);
+        }
+        return created;
+    }
+    
+    private boolean hasDefaultPartition() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL", Boolean.class, DEFAULT_PARTITION));
+    }
+    
+    public List<YearMonth> monthPartitions() {
+        List<YearMonth> months = new ArrayList<>();
+        jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = 'habit_logs'::regclass", String.class)
+                .forEach(name -> partitionMonth(name).ifPresent(months::add));
+        months.sort(null);
+        return months;
+    }
+    
+    public Optional<LocalDate> archiveUpperBound() {
+        List<String> bounds = jdbcTemplate.queryForList(
+                "SELECT pg_get_expr(c.relpartbound, c.oid) FROM pg_class c WHERE c.oid = to_regclass(?)",
+                String.class, ARCHIVE_PARTITION);
+        return bounds.isEmpty() ? Optional.empty() : upperBound(bounds.get(0));
+    }
+    
+    /**
+     * Writes the month's rows as gzip-compressed CSV ({@code id,habit_id,user_id,date,status}) to
+     * {@code directory}, replacing any earlier export of the same month. The file only
+     * appears under its final name once complete.
+     */
+    public Path export(YearMonth month, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path target = directory.resolve(String.format("habit_logs_%04d_%02d.csv.gz", month.getYear(), month.getMonthValue()));
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(temp)), StandardCharsets.UTF_8))) {
+            writer.write("id,habit_id,user_id,date,status\n");
+            jdbcTemplate.query("SELECT id, habit_id, user_id, date, status FROM " + partitionName(month) + " ORDER BY habit_id, date", rs -> {
+                try {
+                    writer.write(rs.getLong(1) + "," + rs.getLong(2) + "," + rs.getLong(3) + "," + rs.getDate(4) + "," + rs.getBoolean(5) + "\n");
+                } catch (IOException e) {
+                    throw new RuntimeException("Cannot write archive " + target, e);
+                }
+            });
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return target;
+    }
+    
+    /**
+     * Adds a validated {@code CHECK} to the archive partition that its rows lie before the end
+     * of {@code month}, so that {@link #mergeIntoArchive} can re-attach it without scanning
+     * it. Call before the merge and outside its transaction: validating scans the archive,
+     * but without blocking reads or writes of {@code habit_logs}.
+     */
+    public void prepareArchiveBound(YearMonth month) {
+        jdbcTemplate.execute("ALTER TABLE " + ARCHIVE_PARTITION + " DROP CONSTRAINT IF EXISTS " + ARCHIVE_BOUND);
+        jdbcTemplate.execute(String.format("ALTER TABLE %s ADD CONSTRAINT %s CHECK (date < '%s') NOT VALID",
+                ARCHIVE_PARTITION, ARCHIVE_BOUND, month.plusMonths(1).atDay(1)));
+        jdbcTemplate.execute("ALTER TABLE " + ARCHIVE_PARTITION + " VALIDATE CONSTRAINT " + ARCHIVE_BOUND);
+    }
+    
+    /**
+     * Moves the month's rows into the archive partition and drops the month partition,
+     * extending the archive's range to the end of the month. Runs as one transaction, so
+     * queries on {@code habit_logs} wait for it rather than seeing the rows missing; the
+     * wait covers copying the month, not the archive, once {@link #prepareArchiveBound}
+     * has run for the month.
+     */
+    @Transactional
+    public void mergeIntoArchive(YearMonth month) {
+        String partition = partitionName(month);
+        LocalDate upper = month.plusMonths(1).atDay(1);
+        
+        jdbcTemplate.execute("ALTER TABLE habit_logs DETACH PARTITION " + ARCHIVE_PARTITION);
+        jdbcTemplate.execute("ALTER TABLE habit_logs DETACH PARTITION " + partition);
+        jdbcTemplate.execute("INSERT INTO " + ARCHIVE_PARTITION + " SELECT * FROM " + partition);
+        jdbcTemplate.execute("DROP TABLE " + partition);
+        jdbcTemplate.execute(String.format("ALTER TABLE habit_logs ATTACH PARTITION %s FOR VALUES FROM (MINVALUE) TO ('%s')",
+                ARCHIVE_PARTITION, upper));
+        jdbcTemplate.execute("ALTER TABLE " + ARCHIVE_PARTITION + " DROP CONSTRAINT IF EXISTS " + ARCHIVE_BOUND);
+        log.info("Merged {} into {}, now covering dates before {}", partition, ARCHIVE_PARTITION, upper);
+    }
+}
@@ -1,27 +1,58 @@
 package com.habittracker.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.habittracker.dto.HabitLogBatchRequest;
+import com.habittracker.dto.HabitLogBatchResponse;
+import com.habittracker.dto.HabitLogBatchResponse.EntryResult;
+import com.habittracker.dto.HabitLogBatchResponse.Outcome;
 import com.habittracker.dto.HabitRequest;
 import com.habittracker.dto.HabitResponse;
+import com.habittracker.event.HabitDataChangedEvent;
 import com.habittracker.model.Habit;
-import com.habittracker.model.HabitLog;
+import com.habittracker.model.HabitStats;
 import com.habittracker.model.User;
+import com.habittracker.repository.HabitLogDay;
 import com.habittracker.repository.HabitLogRepository;
+import com.habittracker.repository.HabitLogUpsertRepository;
 import com.habittracker.repository.HabitRepository;
 import com.habittracker.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class HabitService {
+    private static final int MAX_LOG_PAGE_SIZE = 1000;
+    private static final LocalDate EARLIEST_LOG_DATE = LocalDate.of(1, 1, 1);
+    private static final LocalDate LATEST_LOG_DATE = LocalDate.of(9999, 12, 31);
+    
     private final HabitRepository habitRepository;
     private final HabitLogRepository habitLogRepository;
     private final UserRepository userRepository;
+    private final HabitStatsService habitStatsService;
+    private final HabitCalendarService habitCalendarService;
+    private final UserDailySummaryService userDailySummaryService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper;
     
     @Transactional
     public HabitResponse createHabit(Long userId, HabitRequest request) {
@@ -35,12 +66,19 @@ public class HabitService {
                 .build();
         
         habit = habitRepository.save(habit);
-        return mapToResponse(habit);
+        HabitStats stats = habitStatsService.initialize(habit.getId());
+        eventPublisher.publishEvent(new HabitDataChangedEvent(userId));
+        return mapToResponse(habit, stats);
     }
     
+    @Transactional(readOnly = true)
     public List<HabitResponse> getUserHabits(Long userId) {
-        return habitRepository.findByUserId(userId).stream()
-                .map(this::mapToResponse)
+        return habitRepository.findWithStatsByUserId(userId).stream()
+                .map(row -> {
+                    Habit habit = (Habit) row[0];
+                    HabitStats stats = row[1] != null ? (HabitStats) row[1] : habitStatsService.compute(habit.getId());
+                    return mapToResponse(habit, stats);
+                })
                 .collect(Collectors.toList());
     }
     
@@ -67,6 +105,7 @@ public class HabitService {
         habit.setTitle(request.getTitle());
         habit.setCategory(request.getCategory());
         habit = habitRepository.save(habit);
+        eventPublisher.publishEvent(new HabitDataChangedEvent(userId));
         
         return mapToResponse(habit);
     }
@@ -80,85 +119,158 @@ public class HabitService {
             throw new RuntimeException("Unauthorized");
         }
         
+        habitStatsService.delete(habitId);
+        habitCalendarService.delete(habitId);
+        userDailySummaryService.removeHabit(userId, habitId);
+        habitLogRepository.deleteByHabitId(habitId);
         habitRepository.delete(habit);
+        eventPublisher.publishEvent(new HabitDataChangedEvent(userId));
     }
     
+    /**
+     * Ownership check and upsert take one round trip; the previous status it returns
+     * lets {@code habit_stats} be updated incrementally.
+     */
     @Transactional
     public void logHabit(Long habitId, Long userId, LocalDate date, Boolean status) {
-        Habit habit = habitRepository.findById(habitId)
-                .orElseThrow(() -> new RuntimeException("Habit not found"));
-        
-        if (!habit.getUser().getId().equals(userId)) {
+        HabitLogUpsertRepository.UpsertResult result = habitLogRepository.upsert(habitId, userId, date, status);
+        if (result.ownerId() == null) {
+            throw new RuntimeException("Habit not found");
+        }
+        if (!result.ownerId().equals(userId)) {
             throw new RuntimeException("Unauthorized");
         }
         
-        HabitLog existingLog = habitLogRepository.findByHabitIdAndDate(habitId, date).orElse(null);
-        
-        if (existingLog != null) {
-            existingLog.setStatus(status);
-            habitLogRepository.save(existingLog);
+        habitCalendarService.record(habitId, date, status);
+        if (result.inserted() || result.previousStatus() != null) {
+            habitStatsService.recordLog(habitId, date, result.previousStatus(), status);
+            userDailySummaryService.recordLog(userId, date, result.previousStatus(), status);
         } else {
-            HabitLog log = HabitLog.builder()
-                    .habit(habit)
-                    .date(date)
-                    .status(status)
-                    .build();
-            habitLogRepository.save(log);
+            habitStatsService.rebuild(habitId);
+            userDailySummaryService.recountDays(userId, Set.of(date));
+        }
+        eventPublisher.publishEvent(new HabitDataChangedEvent(userId));
+    }
+    
+    /**
+     * Logs many {@code (habitId, date, status)} entries with one ownership query and one
+     * upsert batch. Entries for habits the user does not own are rejected individually;
+     * the stats and calendars of every affected habit are then rebuilt once, the stats
+     * with a single history query for all of them, and the user's affected days recounted.
+     */
+    @Transactional
+    public HabitLogBatchResponse logHabits(Long userId, HabitLogBatchRequest request) {
+        List<HabitLogBatchRequest.Entry> entries = request.getEntries();
+        Set<Long> requestedIds = new HashSet<>();
+        entries.forEach(entry -> requestedIds.add(entry.getHabitId()));
+        Set<Long> ownedIds = new HashSet<>(habitRepository.findIdsByIdInAndUserId(requestedIds, userId));
+        
+        List<EntryResult> results = new ArrayList<>(entries.size());
+        List<HabitLogUpsertRepository.Entry> upserts = new ArrayList<>(entries.size());
+        for (HabitLogBatchRequest.Entry entry : entries) {
+            boolean owned = ownedIds.contains(entry.getHabitId());
+            if (owned) {
+                upserts.add(new HabitLogUpsertRepository.Entry(entry.getHabitId(), entry.getDate(), entry.getStatus()));
+            }
+            results.add(EntryResult.builder()
+                    .habitId(entry.getHabitId())
+                    .date(entry.getDate())
+                    .outcome(owned ? Outcome.SAVED : Outcome.REJECTED)
+                    .build());
+        }
+        
+        if (!upserts.isEmpty()) {
+            // Stable sort: a consistent lock order across batches, and the last duplicate still wins
+            upserts.sort(Comparator.comparing(HabitLogUpsertRepository.Entry::habitId)
+                    .thenComparing(HabitLogUpsertRepository.Entry::date));
+            habitLogRepository.upsertAll(userId, upserts);
+            
+            Set<Long> affectedIds = new TreeSet<>();
+            Set<LocalDate> affectedDates = new HashSet<>();
+            upserts.forEach(entry -> {
+                affectedIds.add(entry.habitId());
+                affectedDates.add(entry.date());
+            });
+            if (habitCalendarService.getMode().writesCalendar()) {
+                affectedIds.forEach(habitCalendarService::rebuild);
+            }
+            habitStatsService.rebuildAll(affectedIds);
+            userDailySummaryService.recountDays(userId, affectedDates);
+            eventPublisher.publishEvent(new HabitDataChangedEvent(userId));
         }
+        
+        return HabitLogBatchResponse.builder()
+                .saved(upserts.size())
+                .rejected(entries.size() - upserts.size())
+                .results(results)
+                .build();
     }
     
-    public List<HabitLog> getHabitLogs(Long habitId, Long userId) {
+    public void checkHabitOwner(Long habitId, Long userId) {
         Habit habit = habitRepository.findById(habitId)
                 .orElseThrow(() -> new RuntimeException("Habit not found"));
         
         if (!habit.getUser().getId().equals(userId)) {
             throw new RuntimeException("Unauthorized");
         }
+    }
+    
+    /**
+     * Writes {@code {"logs":[{"date":...,"status":...}],"nextCursor":...}} for the habit's logs
+     * dated {@code from} to {@code to} (both optional), oldest first, at most {@code limit} of
+     * them and only those after {@code cursor}, the {@code nextCursor} of the previous page;
+     * {@code nextCursor} is null on the last page. Rows go from the database cursor straight
+     * to the generator, so memory use does not depend on the page size or the history length.
+     * The caller checks ownership with {@link #checkHabitOwner} first.
+     */
+    @Transactional(readOnly = true)
+    public void writeHabitLogs(Long habitId, LocalDate from, LocalDate to, LocalDate cursor, int limit, OutputStream out) throws IOException {
+        LocalDate after = from != null ? from.minusDays(1) : EARLIEST_LOG_DATE;
+        if (cursor != null && cursor.isAfter(after)) {
+            after = cursor;
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_LOG_PAGE_SIZE));
         
-        return habitLogRepository.findByHabitId(habitId);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+             // One extra row tells whether there is a next page
+             Stream<HabitLogDay> days = habitLogRepository.streamDaysByHabitId(habitId, after,
+                     to != null ? to : LATEST_LOG_DATE, Limit.of(pageSize + 1))) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("logs");
+            LocalDate last = null;
+            int written = 0;
+            boolean more = false;
+            for (Iterator<HabitLogDay> it = days.iterator(); it.hasNext(); ) {
+                HabitLogDay day = it.next();
+                if (written == pageSize) {
+                    more = true;
+                    break;
+                }
+                generator.writeStartObject();
+                generator.writeStringField("date", day.getDate().toString());
+                generator.writeBooleanField("status", day.getStatus());
+                generator.writeEndObject();
+                last = day.getDate();
+                written++;
+            }
+            generator.writeEndArray();
+            generator.writeStringField("nextCursor", more ? last.toString() : null);
+            generator.writeEndObject();
+        }
     }
     
     private HabitResponse mapToResponse(Habit habit) {
-        Long currentStreak = calculateStreak(habit.getId());
-        Double consistency = calculateConsistency(habit.getId());
-        
-        return HabitResponse.builder()
+        return mapToResponse(habit, habitStatsService.getStats(habit.getId()));
+    }
+    
+    private HabitResponse mapToResponse(Habit habit, HabitStats stats) {
+        return meterRegistry.timer("habit.response.mapping").record(() -> HabitResponse.builder()
                 .id(habit.getId())
                 .title(habit.getTitle())
                 .category(habit.getCategory())
-                .currentStreak(currentStreak)
-                .consistencyPercentage(consistency)
+                .currentStreak(stats.currentStreakAsOf(LocalDate.now()))
+                .consistencyPercentage(stats.consistencyPercentage())
                 .createdAt(habit.getCreatedAt())
-                .build();
-    }
-    
-    private Long calculateStreak(Long habitId) {
-        List<HabitLog> logs = habitLogRepository.findByHabitId(habitId);
-        if (logs.isEmpty()) return 0L;
-        
-        logs.sort((a, b) -> b.getDate().compareTo(a.getDate()));
-        
-        long streak = 0;
-        LocalDate currentDate = LocalDate.now();
-        
-        for (HabitLog log : logs) {
-            if (log.getStatus() && (log.getDate().equals(currentDate) || log.getDate().equals(currentDate.minusDays(streak)))) {
-                streak++;
-                currentDate = log.getDate().minusDays(1);
-            } else if (log.getDate().isBefore(currentDate)) {
-                break;
-            }
-        }
-        
-        return streak;
-    }
-    
-    private Double calculateConsistency(Long habitId) {
-        List<HabitLog> logs = habitLogRepository.findByHabitId(habitId);
-        if (logs.isEmpty()) return 0.0;
-        
-        long completed = logs.stream().filter(HabitLog::getStatus).count();
-        return (double) completed / logs.size() * 100;
+                .build());
     }
 }
-
@@ -0,0 +1,235 @@
+package com.habittracker.service;
+
+import com.habittracker.model.HabitStats;
+import com.habittracker.repository.HabitLogDay;
+import com.habittracker.repository.HabitLogHabitDay;
+import com.habittracker.repository.HabitLogRepository;
+import com.habittracker.repository.HabitStatsRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains the {@code habit_stats} aggregate. Appending to the end of a habit's
+ * history (the daily check-in) is applied in O(1); edits to older days fall back to
+ * refolding that habit's date/status rows.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HabitStatsService {
+    private final HabitStatsRepository habitStatsRepository;
+    private final HabitLogRepository habitLogRepository;
+    private final HabitCalendarService habitCalendarService;
+    
+    @Transactional
+    public HabitStats initialize(Long habitId) {
+        return habitStatsRepository.save(HabitStats.empty(habitId));
+    }
+    
+    @Transactional
+    public void delete(Long habitId) {
+        habitStatsRepository.deleteById(habitId);
+    }
+    
+    /**
+     * Applies a single log write to the habit's stats. Must run in the same transaction
+     * as the write so that both commit together.
+     *
+     * @param previousStatus status stored for that day before the write, or null if
+     *                       the day had not been logged
+     */
+    @Transactional
+    public void recordLog(Long habitId, LocalDate date, Boolean previousStatus, boolean status) {
+        HabitStats stats = habitStatsRepository.findByIdForUpdate(habitId).orElse(null);
+        if (stats == null) {
+            rebuild(habitId);
+            return;
+        }
+        
+        if (previousStatus == null) {
+            stats.setLoggedCount(stats.getLoggedCount() + 1);
+            if (stats.getLastLogDate() == null || date.isAfter(stats.getLastLogDate())) {
+                stats.setLastLogDate(date);
+            }
+        }
+        
+        boolean wasCompleted = Boolean.TRUE.equals(previousStatus);
+        if (wasCompleted == status) {
+            habitStatsRepository.save(stats);
+            return;
+        }
+        
+        if (status) {
+            stats.setCompletedCount(stats.getCompletedCount() + 1);
+            LocalDate streakEnd = stats.getStreakEndDate();
+            if (streakEnd == null || date.isAfter(streakEnd)) {
+                long streak = streakEnd != null && date.equals(streakEnd.plusDays(1))
+                        ? stats.getCurrentStreak() + 1 : 1;
+                stats.setCurrentStreak(streak);
+                stats.setStreakEndDate(date);
+                stats.setLongestStreak(Math.max(stats.getLongestStreak(), streak));
+            } else {
+                copyStreaks(stats, computeFromHistory(habitId));
+            }
+        } else {
+            stats.setCompletedCount(stats.getCompletedCount() - 1);
+            copyStreaks(stats, computeFromHistory(habitId));
+        }
+        
+        habitStatsRepository.save(stats);
+    }
+    
+    /**
+     * Recomputes the habit's stats from its full log history and stores the result.
+     */
+    @Transactional
+    public HabitStats rebuild(Long habitId) {
+        HabitStats stats = habitStatsRepository.findByIdForUpdate(habitId)
+                .orElseGet(() -> HabitStats.empty(habitId));
+        HabitStats computed = computeFromHistory(habitId);
+        stats.setLoggedCount(computed.getLoggedCount());
+        stats.setCompletedCount(computed.getCompletedCount());
+        stats.setLastLogDate(computed.getLastLogDate());
+        copyStreaks(stats, computed);
+        return habitStatsRepository.save(stats);
+    }
+    
+    /**
+     * {@link #rebuild} for several habits, reading their histories with one query and
+     * locking their stats rows with another. Falls back to per-habit rebuilds in the
+     * calendar-reading modes.
+     */
+    @Transactional
+    public void rebuildAll(Collection<Long> habitIds) {
+        HabitCalendarService.Mode mode = habitCalendarService.getMode();
+        if (mode == HabitCalendarService.Mode.BITMAP || mode == HabitCalendarService.Mode.VERIFY) {
+            habitIds.forEach(this::rebuild);
+            return;
+        }
+        
+        Map<Long, HabitStats> stored = new HashMap<>();
+        habitStatsRepository.findAllByIdForUpdate(habitIds).forEach(stats -> stored.put(stats.getHabitId(), stats));
+        Map<Long, List<HabitLogDay>> daysByHabit = new HashMap<>();
+        for (HabitLogHabitDay day : habitLogRepository.findDaysByHabitIdIn(habitIds)) {
+            daysByHabit.computeIfAbsent(day.getHabitId(), id -> new ArrayList<>()).add(day);
+        }
+        
+        for (Long habitId : habitIds) {
+            HabitStats stats = stored.get(habitId);
+            if (stats == null) {
+                stats = HabitStats.empty(habitId);
+                fold(stats, daysByHabit.getOrDefault(habitId, List.of()));
+                habitStatsRepository.save(stats);
+            } else {
+                // Managed, so the change is flushed with the transaction
+                fold(stats, daysByHabit.getOrDefault(habitId, List.of()));
+            }
+        }
+    }
+    
+    /**
+     * Returns the stored stats, or computes them on the fly (without storing) for
+     * habits the backfill has not reached yet.
+     */
+    @Transactional(readOnly = true)
+    public HabitStats getStats(Long habitId) {
+        return habitStatsRepository.findById(habitId)
+                .orElseGet(() -> compute(habitId));
+    }
+    
+    /**
+     * {@link #getStats} for several habits with one query for the stored rows.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, HabitStats> getStats(Collection<Long> habitIds) {
+        Map<Long, HabitStats> stats = new HashMap<>();
+        habitStatsRepository.findAllById(habitIds).forEach(row -> stats.put(row.getHabitId(), row));
+        for (Long habitId : habitIds) {
+            stats.computeIfAbsent(habitId, this::compute);
+        }
+        return stats;
+    }
+    
+    @Transactional(readOnly = true)
+    public HabitStats compute(Long habitId) {
+        return computeFromHistory(habitId);
+    }
+    
+    /**
+     * Computes stats from the habit's full history, reading logs, calendars or both
+     * depending on {@code habit-calendar.mode}.
+     */
+    private HabitStats computeFromHistory(Long habitId) {
+        HabitCalendarService.Mode mode = habitCalendarService.getMode();
+        if (mode == HabitCalendarService.Mode.BITMAP) {
+            return habitCalendarService.computeStats(habitId);
+        }
+        
+        HabitStats fromLogs = HabitStats.empty(habitId);
+        fold(fromLogs, habitLogRepository.findDaysByHabitId(habitId));
+        
+        if (mode == HabitCalendarService.Mode.VERIFY) {
+            HabitStats fromCalendar = habitCalendarService.computeStats(habitId);
+            if (!fromCalendar.equals(fromLogs)) {
+                log.warn("Habit calendar mismatch for habit {}: logs={}, calendar={}", habitId, fromLogs, fromCalendar);
+            }
+        }
+        return fromLogs;
+    }
+    
+    private static void copyStreaks(HabitStats target, HabitStats source) {
+        target.setCurrentStreak(source.getCurrentStreak());
+        target.setStreakEndDate(source.getStreakEndDate());
+        target.setLongestStreak(source.getLongestStreak());
+    }
+    
+    /**
+     * Folds date-ordered rows into all stats fields.
+     */
+    static void fold(HabitStats stats, List<HabitLogDay> days) {
+        long logged = 0;
+        long completed = 0;
+        LocalDate lastLogDate = null;
+        
+        for (HabitLogDay day : days) {
+            logged++;
+            lastLogDate = day.getDate();
+            if (day.getStatus()) {
+                completed++;
+            }
+        }
+        
+        stats.setLoggedCount(logged);
+        stats.setCompletedCount(completed);
+        stats.setLastLogDate(lastLogDate);
+        applyStreaks(stats, days);
+    }
+    
+    private static void applyStreaks(HabitStats stats, List<HabitLogDay> days) {
+        long run = 0;
+        long longest = 0;
+        LocalDate lastCompleted = null;
+        
+        for (HabitLogDay day : days) {
+            if (!day.getStatus()) continue;
+            
+            LocalDate date = day.getDate();
+            run = lastCompleted != null && lastCompleted.plusDays(1).equals(date) ? run + 1 : 1;
+            longest = Math.max(longest, run);
+            lastCompleted = date;
+        }
+        
+        stats.setCurrentStreak(run);
+        stats.setStreakEndDate(lastCompleted);
+        stats.setLongestStreak(longest);
+    }
+}
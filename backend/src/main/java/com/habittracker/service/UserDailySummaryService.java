@@ -0,0 +1,63 @@
+package com.habittracker.service;
+
+import com.habittracker.repository.HabitLogDayCounts;
+import com.habittracker.repository.UserDailySummaryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Maintains the {@code user_daily_summary} rollup. Single log writes are applied as
+ * increments; batch writes recount just the days they touched.
+ */
+@Service
+@RequiredArgsConstructor
+public class UserDailySummaryService {
+    private final UserDailySummaryRepository userDailySummaryRepository;
+    
+    /**
+     * Applies a single log write to the user's day. Must run in the same transaction
+     * as the write so that both commit together.
+     *
+     * @param previousStatus status stored for that day before the write, or null if
+     *                       the day had not been logged
+     */
+    @Transactional
+    public void recordLog(Long userId, LocalDate date, Boolean previousStatus, boolean status) {
+        int logged = previousStatus == null ? 1 : 0;
+        int completed = (status ? 1 : 0) - (Boolean.TRUE.equals(previousStatus) ? 1 : 0);
+        if (logged != 0 || completed != 0) {
+            userDailySummaryRepository.addToDay(userId, date, logged, completed);
+        }
+    }
+    
+    @Transactional
+    public void recountDays(Long userId, Collection<LocalDate> dates) {
+        userDailySummaryRepository.recountDays(userId, dates);
+    }
+    
+    /**
+     * Removes a habit's logs from the rollup; call before the logs themselves are deleted.
+     */
+    @Transactional
+    public void removeHabit(Long userId, Long habitId) {
+        userDailySummaryRepository.subtractHabit(userId, habitId);
+    }
+    
+    @Transactional
+    public void rebuild(Long userId) {
+        userDailySummaryRepository.rebuild(userId);
+    }
+    
+    /**
+     * Days in {@code [start, end]} on which the user logged at least one habit.
+     */
+    @Transactional(readOnly = true)
+    public List<HabitLogDayCounts> getDays(Long userId, LocalDate start, LocalDate end) {
+        return userDailySummaryRepository.findDays(userId, start, end);
+    }
+}
@@ -0,0 +1,49 @@
+-- Tables derived from habit_logs, and the batch job and LLM caches
+
+-- Per-habit aggregate maintained on every log write
+CREATE TABLE habit_stats (
+    habit_id BIGINT PRIMARY KEY REFERENCES habits(id) ON DELETE CASCADE,
+    current_streak BIGINT NOT NULL DEFAULT 0,
+    streak_end_date DATE,
+    longest_streak BIGINT NOT NULL DEFAULT 0,
+    completed_count BIGINT NOT NULL DEFAULT 0,
+    logged_count BIGINT NOT NULL DEFAULT 0,
+    last_log_date DATE
+);
+
+-- Habit history as day-of-year bitmaps, one row per habit per year
+CREATE TABLE habit_calendars (
+    habit_id BIGINT NOT NULL REFERENCES habits(id) ON DELETE CASCADE,
+    calendar_year INTEGER NOT NULL,
+    logged_mask BYTEA NOT NULL,
+    completed_mask BYTEA NOT NULL,
+    PRIMARY KEY (habit_id, calendar_year)
+);
+
+-- Per-user daily rollup of habit_logs, maintained on every log write
+CREATE TABLE user_daily_summary (
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    summary_date DATE NOT NULL,
+    habits_logged BIGINT NOT NULL DEFAULT 0,
+    habits_completed BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, summary_date)
+);
+
+-- Resume points for batch jobs that walk rows in id order
+CREATE TABLE job_checkpoints (
+    job_name VARCHAR(100) PRIMARY KEY,
+    last_id BIGINT NOT NULL DEFAULT 0,
+    started_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    completed BOOLEAN NOT NULL DEFAULT FALSE
+);
+
+-- LLM completions keyed by SHA-256 of (model, normalized prompt)
+CREATE TABLE prompt_completions (
+    prompt_hash VARCHAR(64) PRIMARY KEY,
+    model VARCHAR(100) NOT NULL,
+    completion TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_prompt_completions_created_at ON prompt_completions(created_at);
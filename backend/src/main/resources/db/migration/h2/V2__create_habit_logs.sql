@@ -0,0 +1,9 @@
+-- H2 has no table partitioning; otherwise the same as postgresql/V2, less the
+-- single-column indexes that V3 replaces
+CREATE TABLE habit_logs (
+    id BIGSERIAL PRIMARY KEY,
+    habit_id BIGINT NOT NULL REFERENCES habits(id) ON DELETE CASCADE,
+    date DATE NOT NULL,
+    status BOOLEAN NOT NULL,
+    UNIQUE (habit_id, date)
+);
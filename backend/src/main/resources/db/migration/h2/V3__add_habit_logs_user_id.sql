@@ -0,0 +1,9 @@
+-- See postgresql/V3. H2 has no INCLUDE columns, so the (user_id, date) index
+-- is a plain composite and the unique (habit_id, date) one stays as it is.
+ALTER TABLE habit_logs ADD COLUMN user_id BIGINT;
+UPDATE habit_logs SET user_id = (SELECT h.user_id FROM habits h WHERE h.id = habit_logs.habit_id);
+ALTER TABLE habit_logs ALTER COLUMN user_id SET NOT NULL;
+ALTER TABLE habit_logs ADD CONSTRAINT fk_habit_logs_user
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE;
+
+CREATE INDEX idx_habit_logs_user_date ON habit_logs (user_id, date);
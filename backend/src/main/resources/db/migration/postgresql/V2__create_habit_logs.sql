@@ -0,0 +1,20 @@
+-- Range-partitioned by month on date. The application creates the habit_logs_pYYYYMM
+-- partitions ahead of time and merges months past the archive horizon into
+-- habit_logs_archive (HabitLogPartitionJob). Databases whose habit_logs predates
+-- partitioning are converted with database/partition_habit_logs.sql.
+CREATE TABLE habit_logs (
+    id BIGSERIAL,
+    habit_id BIGINT NOT NULL REFERENCES habits(id) ON DELETE CASCADE,
+    date DATE NOT NULL,
+    status BOOLEAN NOT NULL,
+    PRIMARY KEY (id, date),
+    UNIQUE (habit_id, date)
+) PARTITION BY RANGE (date);
+
+CREATE TABLE habit_logs_archive PARTITION OF habit_logs
+    FOR VALUES FROM (MINVALUE) TO ('2000-01-01');
+-- Catches dates outside every month partition, e.g. far in the future
+CREATE TABLE habit_logs_default PARTITION OF habit_logs DEFAULT;
+
+CREATE INDEX idx_habit_logs_habit_id ON habit_logs(habit_id);
+CREATE INDEX idx_habit_logs_date ON habit_logs(date);
@@ -0,0 +1,29 @@
+-- Copies the owner of each log's habit onto the log, so per-user reads (analytics,
+-- reports, the daily summary) go straight to a (user_id, date) index instead of
+-- joining every habit of the user. A habit never changes owner, so the copy cannot
+-- go stale; the application sets it on every insert.
+ALTER TABLE habit_logs ADD COLUMN user_id BIGINT;
+UPDATE habit_logs hl SET user_id = h.user_id FROM habits h WHERE h.id = hl.habit_id;
+ALTER TABLE habit_logs ALTER COLUMN user_id SET NOT NULL;
+ALTER TABLE habit_logs ADD CONSTRAINT fk_habit_logs_user
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE;
+
+-- Covering indexes, so the hot reads are index-only scans. The (habit_id, date) one
+-- replaces the plain unique constraint, which may have a generated name on databases
+-- created by Hibernate, and the single-column indexes it makes redundant.
+ALTER TABLE habit_logs ADD CONSTRAINT uk_habit_logs_habit_date UNIQUE (habit_id, date) INCLUDE (status);
+DO $$
+DECLARE
+    old_constraint TEXT;
+BEGIN
+    FOR old_constraint IN
+        SELECT conname FROM pg_constraint
+        WHERE conrelid = 'habit_logs'::regclass AND contype = 'u' AND conname <> 'uk_habit_logs_habit_date'
+    LOOP
+        EXECUTE format('ALTER TABLE habit_logs DROP CONSTRAINT %I', old_constraint);
+    END LOOP;
+END $$;
+DROP INDEX IF EXISTS idx_habit_logs_habit_id;
+DROP INDEX IF EXISTS idx_habit_logs_date;
+
+CREATE INDEX idx_habit_logs_user_date ON habit_logs (user_id, date) INCLUDE (habit_id, status);
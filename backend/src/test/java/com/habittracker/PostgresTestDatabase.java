@@ -0,0 +1,62 @@
+package com.habittracker;
+
+import org.junit.jupiter.api.Assumptions;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.UUID;
+
+/**
+ * A new, empty PostgreSQL database for tests of the SQL and migrations H2 cannot run
+ * (partitioning, {@code ON CONFLICT}, {@code INCLUDE} indexes). The server is the one at
+ * {@code -Dpostgres.test.url} when given, a JDBC URL of any database on it with
+ * {@code -Dpostgres.test.username} and {@code -Dpostgres.test.password}, such as a CI service
+ * container; otherwise a Testcontainers container shared by every test in the JVM. Without
+ * either the calling test is skipped.
+ */
+public record PostgresTestDatabase(String url, String username, String password) {
+    private static final String IMAGE = "postgres:16-alpine";
+    
+    private static PostgreSQLContainer<?> container;
+    
+    /**
+     * Call from {@code @BeforeAll}, so that the whole class is skipped without a server.
+     */
+    public static synchronized PostgresTestDatabase create() {
+        String serverUrl = System.getProperty("postgres.test.url");
+        String username = System.getProperty("postgres.test.username", "postgres");
+        String password = System.getProperty("postgres.test.password", "");
+        if (serverUrl == null) {
+            Assumptions.assumeTrue(DockerClientFactory.instance().isDockerAvailable(),
+                    "PostgreSQL tests need Docker or -Dpostgres.test.url");
+            if (container == null) {
+                container = new PostgreSQLContainer<>(IMAGE);
+                container.start();
+            }
+            serverUrl = container.getJdbcUrl();
+            username = container.getUsername();
+            password = container.getPassword();
+        }
+        
+        String database = "test_" + UUID.randomUUID().toString().replace("-", "");
+        new JdbcTemplate(new DriverManagerDataSource(serverUrl, username, password)).execute("CREATE DATABASE " + database);
+        return new PostgresTestDatabase(serverUrl.replaceFirst("^(jdbc:postgresql://[^/?]+/)[^?]*", "$1" + database),
+                username, password);
+    }
+    
+    public JdbcTemplate jdbcTemplate() {
+        return new JdbcTemplate(new DriverManagerDataSource(url, username, password));
+    }
+    
+    /**
+     * Points the application under test at this database, for {@code @DynamicPropertySource}.
+     */
+    public void register(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", this::url);
+        registry.add("spring.datasource.username", this::username);
+        registry.add("spring.datasource.password", this::password);
+    }
+}
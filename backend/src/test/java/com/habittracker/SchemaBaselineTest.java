@@ -0,0 +1,63 @@
+package com.habittracker;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Boots the application against a database created before the migrations, from
+ * {@code db/baseline-schema.sql} with a user, habit and log in it: Flyway baselines it and
+ * runs the later migrations, and Hibernate's schema validation then passes.
+ */
+class SchemaBaselineTest {
+    
+    private static final List<String> ADDED_TABLES = List.of(
+            "habit_stats", "habit_calendars", "user_daily_summary", "job_checkpoints", "prompt_completions");
+    
+    @Test
+    void testStartup_MigratesBaselineH2Database() {
+        String url = "jdbc:h2:mem:baseline-" + UUID.randomUUID()
+                + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1";
+        assertMigratesBaseline(url, "sa", "", "h2");
+    }
+    
+    @Test
+    void testStartup_MigratesBaselinePostgresDatabase() {
+        PostgresTestDatabase database = PostgresTestDatabase.create();
+        assertMigratesBaseline(database.url(), database.username(), database.password());
+    }
+    
+    private void assertMigratesBaseline(String url, String username, String password, String... profiles) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(url, username, password));
+        new ResourceDatabasePopulator(new ClassPathResource("db/baseline-schema.sql")).execute(jdbcTemplate.getDataSource());
+        jdbcTemplate.update("INSERT INTO users (email, name, password_hash) VALUES ('old@example.com', 'Old User', 'hash')");
+        jdbcTemplate.update("INSERT INTO habits (user_id, title, category) SELECT id, 'Run', 'Fitness' FROM users");
+        jdbcTemplate.update("INSERT INTO habit_logs (habit_id, date, status) SELECT id, DATE '2024-01-15', TRUE FROM habits");
+        
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SmartHabitTrackerApplication.class)
+                .profiles(profiles)
+                .run("--spring.datasource.url=" + url, "--spring.datasource.username=" + username,
+                        "--spring.datasource.password=" + password, "--server.port=0", "--management.server.port=0")) {
+            Flyway flyway = context.getBean(Flyway.class);
+            assertEquals("2", flyway.info().applied()[0].getVersion().getVersion(), "baseline version");
+            assertEquals(0, flyway.info().pending().length, "pending migrations");
+        }
+        
+        for (String table : ADDED_TABLES) {
+            assertDoesNotThrow(() -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class), table);
+        }
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM habit_logs hl JOIN habits h ON h.id = hl.habit_id WHERE hl.user_id = h.user_id",
+                Integer.class));
+    }
+}
@@ -0,0 +1,40 @@
+package com.habittracker;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Boots the whole application against an empty database, so the time includes running
+ * every migration and Hibernate's schema validation. When this is the first test in the
+ * JVM it is a cold start, about 25 s on a small CI runner, of which the migrations and
+ * validation take under one. Lower {@link #BUDGET} when startup gets cheaper; override
+ * it on slow machines with {@code -Dstartup.budget=PT60S}.
+ */
+class StartupTimeTest {
+    
+    private static final Duration BUDGET = Duration.parse(System.getProperty("startup.budget", "PT40S"));
+    
+    @Test
+    void testStartup_MigratesEmptyDatabaseWithinBudget() {
+        long start = System.nanoTime();
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SmartHabitTrackerApplication.class)
+                .profiles("h2")
+                .run("--spring.datasource.url=jdbc:h2:mem:startup-" + UUID.randomUUID()
+                                + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+                        "--server.port=0")) {
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+            
+            assertEquals(0, context.getBean(Flyway.class).info().pending().length, "pending migrations");
+            assertFalse(context.getBeanFactory().containsSingleton("ollamaService"), "the AI beans are created on first use");
+            assertTrue(elapsed.compareTo(BUDGET) <= 0, "Startup took " + elapsed.toMillis() + " ms, over its budget of "
+                    + BUDGET.toMillis() + " ms");
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.habittracker.ai;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.Builder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for Ollama's {@code /api/generate}. Each request waits a time-to-first-token
+ * drawn from {@code latency}, then produces {@code responseTokens} tokens (cycling through
+ * {@link #TOKENS}) at {@code tokensPerSecond}. Non-streaming requests get the whole response
+ * once the last token is produced; streaming requests ({@code "stream":true}) get one
+ * newline-delimited JSON chunk per token as it is produced. A fraction {@code errorRate} of
+ * requests fail with HTTP 500 after the time-to-first-token, as Ollama does when the model
+ * cannot be loaded. Records how many requests were served, how many failed and the highest
+ * number in flight at once.
+ *
+ * <p>Unless the JVM runs with {@code -Dsun.net.httpserver.nodelay=true}, as the
+ * {@code load-test} profile does, each response also waits out a 40 ms delayed ACK.
+ */
+public class FakeOllamaServer implements AutoCloseable {
+    public static final String[] TOKENS = {"Great", " week", ",", " keep", " it", " up", "!"};
+    
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final LatencyDistribution latency;
+    private final double errorRate;
+    private final double tokensPerSecond;
+    private final int responseTokens;
+    private final Random random;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger errors = new AtomicInteger();
+    
+    /**
+     * Every request takes {@code latencyMillis} in total, with {@link #TOKENS} spread evenly over it.
+     */
+    public FakeOllamaServer(long latencyMillis) throws IOException {
+        this(LatencyDistribution.fixed(0), 0.0, TOKENS.length * 1000.0 / Math.max(latencyMillis, 1), TOKENS.length, 0L);
+    }
+    
+    /**
+     * Defaults: no time-to-first-token, no errors, {@link #TOKENS} once, tokens as fast as possible.
+     */
+    @Builder(buildMethodName = "start")
+    private FakeOllamaServer(LatencyDistribution latency, double errorRate, double tokensPerSecond,
+                             int responseTokens, Long seed) throws IOException {
+        this.latency = latency != null ? latency : LatencyDistribution.fixed(0);
+        this.errorRate = errorRate;
+        this.tokensPerSecond = tokensPerSecond;
+        this.responseTokens = responseTokens > 0 ? responseTokens : TOKENS.length;
+        this.random = seed != null ? new Random(seed) : new Random();
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/api/generate", this::handleGenerate);
+        this.server.setExecutor(executor);
+        this.server.start();
+    }
+    
+    private void handleGenerate(HttpExchange exchange) throws IOException {
+        int current = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(current, Math::max);
+        boolean[] released = {false};
+        // Leaves the in-flight count before the last bytes go out: once the client has them it
+        // may reuse the connection for its next request before this thread runs again
+        Runnable release = () -> {
+            if (!released[0]) {
+                released[0] = true;
+                inFlight.decrementAndGet();
+            }
+        };
+        try {
+            String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            long firstTokenMillis;
+            boolean fail;
+            synchronized (random) {
+                firstTokenMillis = latency.sampleMillis(random);
+                fail = random.nextDouble() < errorRate;
+            }
+            Thread.sleep(firstTokenMillis);
+            
+            if (fail) {
+                errors.incrementAndGet();
+                byte[] body = "{\"error\":\"model runner has unexpectedly stopped\"}".getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(500, body.length);
+                requests.incrementAndGet();
+                release.run();
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } else if (request.replace(" ", "").contains("\"stream\":true")) {
+                stream(exchange, release);
+            } else {
+                StringBuilder text = new StringBuilder();
+                for (int i = 0; i < responseTokens; i++) {
+                    Thread.sleep(tokenIntervalMillis());
+                    text.append(TOKENS[i % TOKENS.length]);
+                }
+                byte[] body = ("{\"response\":\"" + text + "\",\"done\":true}").getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                requests.incrementAndGet();
+                release.run();
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            release.run();
+            exchange.close();
+        }
+    }
+    
+    private void stream(HttpExchange exchange, Runnable release) throws IOException, InterruptedException {
+        exchange.getResponseHeaders().add("Content-Type", "application/x-ndjson");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (int i = 0; i < responseTokens; i++) {
+                Thread.sleep(tokenIntervalMillis());
+                out.write(("{\"response\":\"" + TOKENS[i % TOKENS.length] + "\",\"done\":false}\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+            requests.incrementAndGet();
+            release.run();
+            out.write("{\"response\":\"\",\"done\":true}\n".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+    
+    private long tokenIntervalMillis() {
+        return tokensPerSecond > 0 ? (long) (1000 / tokensPerSecond) : 0;
+    }
+    
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+    
+    /**
+     * Requests answered, including the ones answered with an error.
+     */
+    public int getRequests() {
+        return requests.get();
+    }
+    
+    public int getErrors() {
+        return errors.get();
+    }
+    
+    public int getMaxInFlight() {
+        return maxInFlight.get();
+    }
+    
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+    
+    /**
+     * Time-to-first-token in milliseconds.
+     */
+    @FunctionalInterface
+    public interface LatencyDistribution {
+        long sampleMillis(Random random);
+        
+        static LatencyDistribution fixed(long millis) {
+            return random -> millis;
+        }
+        
+        static LatencyDistribution uniform(long minMillis, long maxMillis) {
+            return random -> minMillis + (long) (random.nextDouble() * (maxMillis - minMillis));
+        }
+        
+        /**
+         * Right-skewed like real inference times: most requests near the median, a long tail
+         * whose weight grows with {@code sigma}.
+         */
+        static LatencyDistribution logNormal(long medianMillis, double sigma) {
+            return random -> Math.round(medianMillis * Math.exp(sigma * random.nextGaussian()));
+        }
+    }
+}
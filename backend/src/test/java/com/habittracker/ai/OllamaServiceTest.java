@@ -0,0 +1,88 @@
+package com.habittracker.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.habittracker.config.WebClientConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link OllamaService} on a one-connection pool, so that calls queue for the connection.
+ */
+class OllamaServiceTest {
+    
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<AutoCloseable> resources = new ArrayList<>();
+    
+    @AfterEach
+    void tearDown() throws Exception {
+        for (AutoCloseable resource : resources) {
+            resource.close();
+        }
+    }
+    
+    private OllamaService ollamaService(long latencyMillis, Duration pendingAcquireTimeout, int timeoutMillis) throws Exception {
+        FakeOllamaServer ollama = new FakeOllamaServer(latencyMillis);
+        resources.add(ollama);
+        WebClientConfig webClientConfig = new WebClientConfig();
+        ConnectionProvider connectionProvider = webClientConfig.connectionProvider(1, pendingAcquireTimeout, Duration.ofSeconds(30));
+        resources.add(connectionProvider::dispose);
+        OllamaService ollamaService = new OllamaService(
+                webClientConfig.webClientBuilder(connectionProvider, Duration.ofSeconds(5), Duration.ofSeconds(60)),
+                ollama.getBaseUrl(), new ObjectMapper(),
+                new PromptCompletionCache(null, false, false, 0, Duration.ZERO), meterRegistry);
+        ReflectionTestUtils.setField(ollamaService, "model", "mistral");
+        ReflectionTestUtils.setField(ollamaService, "timeout", timeoutMillis);
+        return ollamaService;
+    }
+    
+    private double count(String name, String... tags) {
+        var counter = meterRegistry.find(name).tags(tags).counter();
+        return counter != null ? counter.count() : 0;
+    }
+    
+    @Test
+    void testTimeout_ExcludesTimeQueuedForConnection() throws Exception {
+        OllamaService ollamaService = ollamaService(200, Duration.ofSeconds(10), 500);
+        
+        // The last call waits about 400 ms for the connection, then 200 ms for Ollama
+        List<String> reports = Flux.range(0, 3)
+                .flatMap(i -> ollamaService.generateWeeklyCoachingReportAsync("data " + i))
+                .collectList()
+                .block(Duration.ofSeconds(10));
+        
+        assertEquals(3, reports.size());
+        assertEquals(0, count("ollama.timeouts"));
+    }
+    
+    @Test
+    void testSlowResponse_CountedAsTimeout() throws Exception {
+        OllamaService ollamaService = ollamaService(1000, Duration.ofSeconds(10), 200);
+        
+        assertThrows(RuntimeException.class, () -> ollamaService.generateWeeklyCoachingReport("data"));
+        
+        assertEquals(1, count("ollama.timeouts", "operation", "generate"));
+    }
+    
+    @Test
+    void testQueuedPastPendingAcquireTimeout_CountedAsPoolError() throws Exception {
+        OllamaService ollamaService = ollamaService(500, Duration.ofMillis(100), 5000);
+        
+        var first = ollamaService.generateWeeklyCoachingReportAsync("first").toFuture();
+        assertThrows(RuntimeException.class, () -> ollamaService.generateWeeklyCoachingReport("second"));
+        first.get();
+        
+        assertEquals(0, count("ollama.timeouts"));
+        assertEquals(1, count("ollama.errors", "operation", "generate", "exception", "PoolAcquireTimeoutException"));
+    }
+}
@@ -0,0 +1,182 @@
+package com.habittracker.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.habittracker.config.WebClientConfig;
+import com.habittracker.model.PromptCompletion;
+import com.habittracker.repository.PromptCompletionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PromptCompletionCacheTest {
+    
+    private static final Duration TTL = Duration.ofDays(7);
+    
+    @Mock
+    private PromptCompletionRepository repository;
+    
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-03-10T09:00:00Z"));
+    
+    @Test
+    void testKey_IgnoresWhitespaceDifferencesButNotModel() {
+        String key = PromptCompletionCache.key("mistral", "Summarize:\n- Run 0%\n");
+        
+        assertEquals(key, PromptCompletionCache.key("mistral", "  Summarize: - Run   0%"));
+        assertNotEquals(key, PromptCompletionCache.key("llama3", "Summarize:\n- Run 0%\n"));
+        assertNotEquals(key, PromptCompletionCache.key("mistral", "Summarize:\n- Run 100%\n"));
+        assertEquals(64, key.length());
+    }
+    
+    @Test
+    void testGet_MemoryHitDoesNotQueryDatabase() {
+        PromptCompletionCache cache = new PromptCompletionCache(repository, true, true, 10, TTL, clock);
+        
+        cache.put("k", "mistral", "Great week!");
+        
+        assertEquals(Optional.of("Great week!"), cache.get("k"));
+        verify(repository).save(any(PromptCompletion.class));
+        verify(repository, never()).findByPromptHashAndCreatedAtAfter(any(), any());
+        assertEquals(1, cache.getMemoryHits());
+        assertEquals(1.0, cache.getHitRate());
+    }
+    
+    @Test
+    void testGet_PersistentHitIsPromotedToMemory() {
+        PromptCompletionCache cache = new PromptCompletionCache(repository, true, true, 10, TTL, clock);
+        when(repository.findByPromptHashAndCreatedAtAfter(eq("k"), any())).thenReturn(Optional.of(PromptCompletion.builder()
+                .promptHash("k")
+                .model("mistral")
+                .completion("Stored")
+                .createdAt(now().minusDays(1))
+                .build()));
+        
+        assertEquals(Optional.of("Stored"), cache.get("k"));
+        assertEquals(Optional.of("Stored"), cache.get("k"));
+        
+        verify(repository, times(1)).findByPromptHashAndCreatedAtAfter(eq("k"), any());
+        assertEquals(1, cache.getPersistentHits());
+        assertEquals(1, cache.getMemoryHits());
+    }
+    
+    @Test
+    void testGet_ExpiresAfterTtlInBothTiers() {
+        PromptCompletionCache cache = new PromptCompletionCache(repository, true, true, 10, TTL, clock);
+        cache.put("k", "mistral", "Old");
+        
+        clock.advance(TTL.plusMinutes(1));
+        
+        assertEquals(Optional.empty(), cache.get("k"));
+        verify(repository).findByPromptHashAndCreatedAtAfter("k", now().minus(TTL));
+        assertEquals(1, cache.getMisses());
+        assertEquals(0, cache.getSize());
+    }
+    
+    @Test
+    void testPut_EvictsLeastRecentlyUsed() {
+        PromptCompletionCache cache = new PromptCompletionCache(repository, true, false, 2, TTL, clock);
+        cache.put("a", "mistral", "A");
+        cache.put("b", "mistral", "B");
+        cache.get("a");
+        cache.put("c", "mistral", "C");
+        
+        assertEquals(Optional.of("A"), cache.get("a"));
+        assertEquals(Optional.empty(), cache.get("b"));
+        assertEquals(1, cache.getEvictions());
+        verifyNoInteractions(repository);
+    }
+    
+    @Test
+    void testDisabled_BypassesBothTiers() {
+        PromptCompletionCache cache = new PromptCompletionCache(repository, false, true, 10, TTL, clock);
+        
+        cache.put("k", "mistral", "Great week!");
+        
+        assertEquals(Optional.empty(), cache.get("k"));
+        verifyNoInteractions(repository);
+        assertEquals(0, cache.getMisses());
+    }
+    
+    @Test
+    void testGet_DatabaseFailureIsAMiss() {
+        PromptCompletionCache cache = new PromptCompletionCache(repository, true, true, 10, TTL, clock);
+        when(repository.findByPromptHashAndCreatedAtAfter(any(), any()))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"));
+        
+        assertEquals(Optional.empty(), cache.get("k"));
+        assertEquals(1, cache.getErrors());
+        assertEquals(1, cache.getMisses());
+    }
+    
+    @Test
+    void testOllamaService_IdenticalPromptsShareOneInference() throws Exception {
+        PromptCompletionCache cache = new PromptCompletionCache(repository, true, false, 10, TTL, clock);
+        WebClientConfig webClientConfig = new WebClientConfig();
+        ConnectionProvider connectionProvider = webClientConfig.connectionProvider(1, Duration.ofSeconds(30), Duration.ofSeconds(30));
+        try (FakeOllamaServer ollama = new FakeOllamaServer(50)) {
+            OllamaService ollamaService = new OllamaService(
+                    webClientConfig.webClientBuilder(connectionProvider, Duration.ofSeconds(5), Duration.ofSeconds(30)),
+                    ollama.getBaseUrl(), new ObjectMapper(), cache, new SimpleMeterRegistry());
+            ReflectionTestUtils.setField(ollamaService, "model", "mistral");
+            ReflectionTestUtils.setField(ollamaService, "timeout", 5000);
+            
+            String first = ollamaService.generateWeeklyCoachingReport("- Run (Fitness): 0.0% consistency, 0/7 days completed\n");
+            String second = ollamaService.generateWeeklyCoachingReport("- Run (Fitness):  0.0% consistency, 0/7 days completed");
+            
+            assertEquals(first, second);
+            assertEquals(1, ollama.getRequests());
+            assertEquals(0.5, cache.getHitRate());
+        } finally {
+            connectionProvider.dispose();
+        }
+    }
+    
+    private LocalDateTime now() {
+        return LocalDateTime.now(clock);
+    }
+    
+    private static class MutableClock extends Clock {
+        private Instant instant;
+        
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+        
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+        
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+        
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+        
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.habittracker.benchmark;
+
+import com.habittracker.security.JwtClaims;
+import com.habittracker.security.JwtTokenProvider;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request JWT cost. {@code perRequestBefore} reproduces the old path: the filter's
+ * validateToken and getEmailFromToken plus the controller's getUserIdFromToken, each
+ * rebuilding the key and parser. {@code perRequestAfter} is the single parse done now.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtAuthenticationBenchmark {
+    private static final String SECRET = "benchmark-secret-key-with-at-least-32-characters";
+    
+    private JwtTokenProvider tokenProvider;
+    private String token;
+    
+    @Setup
+    public void setUp() {
+        tokenProvider = new JwtTokenProvider(SECRET, 86400000);
+        token = tokenProvider.generateToken("bench@example.com", 42L);
+    }
+    
+    @Benchmark
+    public void perRequestBefore(Blackhole blackhole) {
+        blackhole.consume(parseWithFreshParser(token));
+        blackhole.consume(parseWithFreshParser(token).getSubject());
+        blackhole.consume(parseWithFreshParser(token).get("userId", Long.class));
+    }
+    
+    @Benchmark
+    public JwtClaims perRequestAfter() {
+        return tokenProvider.parse(token);
+    }
+    
+    private static Claims parseWithFreshParser(String token) {
+        SecretKey key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        return Jwts.parser()
+                .verifyWith(key)
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+}
@@ -0,0 +1,218 @@
+package com.habittracker.benchmark;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Time from launch to ready, and resident memory once ready, of the application started
+ * each way the {@code fast-startup} profile supports: plain JIT, Spring AOT, Spring AOT
+ * with a class-data sharing archive from a training run, and the native image if one
+ * was built. Ready is the first 200 from {@code /actuator/health}, which needs the
+ * context refreshed, the migrations applied and both web servers listening. RSS is
+ * {@code VmRSS} from {@code /proc}, so Linux only.
+ *
+ * <p>Each mode runs {@code startup.benchmark.runs} times against a fresh in-memory H2
+ * database and the median is reported, on stdout and in {@code startup-benchmark.csv}
+ * next to the jar. Pass {@code startup.benchmark.datasource.url}, {@code .username} and
+ * {@code .password} to run against PostgreSQL instead, which the native image needs as
+ * it cannot load H2. Run with {@code mvn -Pfast-startup verify -Dstartup.benchmark.skip=false}.
+ */
+public class StartupBenchmark {
+    private static final Duration READY_TIMEOUT = Duration.ofMinutes(3);
+    private static final String MAIN_CLASS = "com.habittracker.SmartHabitTrackerApplication";
+    
+    private record Mode(String name, List<String> command) {
+    }
+    
+    private record Result(String mode, long readyMillis, long rssKb) {
+    }
+    
+    private final Path jar;
+    private final Path workDir;
+    private final int runs;
+    private final String datasourceUrl;
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+    
+    StartupBenchmark(Path jar, int runs, String datasourceUrl) {
+        this.jar = jar;
+        this.workDir = jar.resolveSibling("startup-benchmark");
+        this.runs = runs;
+        this.datasourceUrl = datasourceUrl;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            System.err.println("Usage: StartupBenchmark <thin application jar with lib/ next to it>");
+            System.exit(2);
+        }
+        StartupBenchmark benchmark = new StartupBenchmark(Path.of(args[0]).toAbsolutePath(),
+                Integer.getInteger("startup.benchmark.runs", 3),
+                System.getProperty("startup.benchmark.datasource.url"));
+        
+        List<Result> results = benchmark.run();
+        StringBuilder csv = new StringBuilder("mode,ready_ms,rss_mb\n");
+        System.out.printf("%n%-10s %12s %10s%n", "mode", "ready (ms)", "RSS (MB)");
+        for (Result result : results) {
+            System.out.printf("%-10s %12d %10d%n", result.mode(), result.readyMillis(), result.rssKb() / 1024);
+            csv.append(result.mode()).append(',').append(result.readyMillis()).append(',').append(result.rssKb() / 1024).append('\n');
+        }
+        Files.writeString(benchmark.jar.resolveSibling("startup-benchmark.csv"), csv);
+    }
+    
+    List<Result> run() throws Exception {
+        Files.createDirectories(workDir);
+        List<Result> results = new ArrayList<>();
+        for (Mode mode : modes()) {
+            List<Long> readyMillis = new ArrayList<>();
+            List<Long> rssKb = new ArrayList<>();
+            for (int i = 0; i < runs; i++) {
+                long[] measured = measure(mode, i);
+                readyMillis.add(measured[0]);
+                rssKb.add(measured[1]);
+            }
+            results.add(new Result(mode.name(), median(readyMillis), median(rssKb)));
+        }
+        return results;
+    }
+    
+    private List<Mode> modes() throws Exception {
+        List<String> java = List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        List<String> classpath = List.of("-cp", classpath(), MAIN_CLASS);
+        List<String> aot = List.of("-Dspring.aot.enabled=true");
+        
+        List<Mode> modes = new ArrayList<>();
+        modes.add(new Mode("jit", concat(java, classpath)));
+        modes.add(new Mode("aot", concat(java, aot, classpath)));
+        
+        // The archive is only used with the exact classpath it was dumped with, so train here
+        Path archive = workDir.resolve("app.jsa");
+        Files.deleteIfExists(archive);
+        train(concat(java, List.of("-XX:ArchiveClassesAtExit=" + archive, "-Dspring.context.exit=onRefresh"), aot, classpath));
+        modes.add(new Mode("aot-cds", concat(java, List.of("-XX:SharedArchiveFile=" + archive), aot, classpath)));
+        
+        Path nativeImage = jar.resolveSibling("smart-habit-tracker");
+        if (Files.isExecutable(nativeImage) && datasourceUrl != null) {
+            modes.add(new Mode("native", List.of(nativeImage.toString())));
+        } else if (Files.isExecutable(nativeImage)) {
+            System.out.println("Skipping native: it needs startup.benchmark.datasource.url, as it cannot load H2");
+        }
+        return modes;
+    }
+    
+    private String classpath() throws Exception {
+        if (datasourceUrl != null) return jar.toString();
+        Path h2 = Path.of(org.h2.Driver.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        return jar + java.io.File.pathSeparator + h2;
+    }
+    
+    private void train(List<String> command) throws Exception {
+        Process process = start(command, 0, 0, workDir.resolve("cds-training.log"));
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("CDS training run failed, see " + workDir.resolve("cds-training.log"));
+        }
+    }
+    
+    /**
+     * Starts the application once and returns its time to ready in milliseconds and its RSS
+     * in kilobytes, then stops it.
+     */
+    private long[] measure(Mode mode, int run) throws Exception {
+        int port = freePort();
+        int managementPort = freePort();
+        Path log = workDir.resolve(mode.name() + "-" + run + ".log");
+        
+        long start = System.nanoTime();
+        Process process = start(mode.command(), port, managementPort, log);
+        try {
+            URI health = URI.create("http://127.0.0.1:" + managementPort + "/actuator/health");
+            while (!isReady(health)) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(mode.name() + " exited with " + process.exitValue() + ", see " + log);
+                }
+                if (System.nanoTime() - start > READY_TIMEOUT.toNanos()) {
+                    throw new IllegalStateException(mode.name() + " not ready after " + READY_TIMEOUT + ", see " + log);
+                }
+                Thread.sleep(20);
+            }
+            long readyMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+            return new long[]{readyMillis, rssKb(process.pid())};
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+    
+    private Process start(List<String> command, int port, int managementPort, Path log) throws IOException {
+        List<String> args = new ArrayList<>(command);
+        args.add("--server.port=" + port);
+        args.add("--management.server.port=" + managementPort);
+        args.add("--spring.jpa.show-sql=false");
+        args.add("--logging.level.com.habittracker=INFO");
+        args.add("--logging.level.org.springframework.security=INFO");
+        if (datasourceUrl == null) {
+            args.add("--spring.datasource.url=jdbc:h2:mem:startup-" + UUID.randomUUID() + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE");
+            args.add("--spring.datasource.driver-class-name=org.h2.Driver");
+            args.add("--spring.datasource.username=sa");
+            args.add("--spring.datasource.password=");
+            args.add("--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect");
+        } else {
+            args.add("--spring.datasource.url=" + datasourceUrl);
+            args.add("--spring.datasource.username=" + System.getProperty("startup.benchmark.datasource.username", "postgres"));
+            args.add("--spring.datasource.password=" + System.getProperty("startup.benchmark.datasource.password", ""));
+        }
+        return new ProcessBuilder(args)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+    }
+    
+    private boolean isReady(URI health) throws InterruptedException {
+        try {
+            return httpClient.send(HttpRequest.newBuilder(health).build(), HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+    
+    private static long rssKb(long pid) throws IOException {
+        Path status = Path.of("/proc", Long.toString(pid), "status");
+        if (!Files.exists(status)) return -1;
+        
+        for (String line : Files.readAllLines(status)) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("\\D", ""));
+            }
+        }
+        return -1;
+    }
+    
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+    
+    private static long median(List<Long> values) {
+        List<Long> sorted = values.stream().sorted().toList();
+        return sorted.get(sorted.size() / 2);
+    }
+    
+    @SafeVarargs
+    private static List<String> concat(List<String>... parts) {
+        List<String> all = new ArrayList<>();
+        for (List<String> part : parts) {
+            all.addAll(part);
+        }
+        return all;
+    }
+}
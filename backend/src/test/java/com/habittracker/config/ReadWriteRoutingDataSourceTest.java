@@ -0,0 +1,202 @@
+package com.habittracker.config;
+
+import com.habittracker.dto.HabitRequest;
+import com.habittracker.dto.HabitResponse;
+import com.habittracker.model.User;
+import com.habittracker.repository.UserRepository;
+import com.habittracker.service.AIReportService;
+import com.habittracker.service.AnalyticsService;
+import com.habittracker.service.HabitService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.CompositeHealth;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two in-memory H2 databases stand in for the primary and the replica. Nothing replicates
+ * between them, so rows written only to the replica show which pool served a read.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReadWriteRoutingDataSourceTest.PRIMARY_URL,
+        "jdbc.routing.enabled=true",
+        "jdbc.routing.replica.jdbc-url=" + ReadWriteRoutingDataSourceTest.REPLICA_URL,
+        "jdbc.routing.replica.username=sa",
+        "jdbc.routing.replica.password=",
+        "jdbc.routing.max-replica-lag=5s",
+        "jdbc.routing.lag-check-interval=PT1H",
+        "jdbc.routing.lag-query=SELECT lag_seconds FROM replica_status"
+})
+@ActiveProfiles("h2")
+class ReadWriteRoutingDataSourceTest {
+    
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH";
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1";
+    
+    private static final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+    
+    @Autowired
+    private HabitService habitService;
+    
+    @Autowired
+    private AIReportService aiReportService;
+    
+    @Autowired
+    private AnalyticsService analyticsService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private ReadWriteRoutingDataSource routingDataSource;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private HealthEndpoint healthEndpoint;
+    
+    @BeforeAll
+    static void createReplicaSchema() {
+        Flyway.configure()
+                .dataSource(REPLICA_URL, "sa", "")
+                .locations("classpath:db/migration/common", "classpath:db/migration/h2")
+                .load()
+                .migrate();
+        replica.execute("CREATE TABLE IF NOT EXISTS replica_status (lag_seconds DOUBLE PRECISION NOT NULL)");
+    }
+    
+    @BeforeEach
+    void resetReplicaLag() {
+        setReplicaLag(0);
+    }
+    
+    private void setReplicaLag(double seconds) {
+        replica.update("DELETE FROM replica_status");
+        replica.update("INSERT INTO replica_status (lag_seconds) VALUES (?)", seconds);
+        routingDataSource.checkReplica();
+    }
+    
+    /**
+     * A user with one habit on the primary, and the same rows on the replica with the habit
+     * titled {@code "Replica copy"}.
+     */
+    private Long createUserWithHabit() {
+        User user = userRepository.save(User.builder()
+                .email(UUID.randomUUID() + "@example.com")
+                .name("Routing User")
+                .passwordHash("hash")
+                .build());
+        HabitRequest request = new HabitRequest();
+        request.setTitle("Primary copy");
+        request.setCategory("Study");
+        Long habitId = habitService.createHabit(user.getId(), request).getId();
+        
+        replica.update("INSERT INTO users (id, email, name, password_hash) VALUES (?, ?, ?, ?)",
+                user.getId(), user.getEmail(), user.getName(), user.getPasswordHash());
+        replica.update("INSERT INTO habits (id, user_id, title, category) VALUES (?, ?, ?, ?)",
+                habitId, user.getId(), "Replica copy", "Study");
+        return user.getId();
+    }
+    
+    private double routed(String route, String reason) {
+        return meterRegistry.get("jdbc.route.connections").tags("route", route, "reason", reason).counter().count();
+    }
+    
+    @Test
+    void testReadOnlyTransactions_ReadFromReplicaAndWritesGoToPrimary() {
+        Long userId = createUserWithHabit();
+        replica.update("INSERT INTO ai_reports (user_id, start_date, end_date, feedback_text) VALUES (?, CURRENT_DATE, CURRENT_DATE, ?)",
+                userId, "Only on the replica");
+        double replicaReads = routed("replica", "read-only");
+        
+        List<HabitResponse> habits = habitService.getUserHabits(userId);
+        
+        assertEquals("Replica copy", habits.get(0).getTitle());
+        assertEquals("Only on the replica", aiReportService.getUserReports(userId).get(0).getFeedbackText());
+        assertTrue(routed("replica", "read-only") >= replicaReads + 2);
+        // The write went to the primary only
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM habits WHERE user_id = ? AND title = 'Primary copy'",
+                Integer.class, userId));
+        assertEquals(0, replica.queryForObject("SELECT COUNT(*) FROM habits WHERE user_id = ? AND title = 'Primary copy'",
+                Integer.class, userId));
+    }
+    
+    @Test
+    void testLaggingReplica_ReadsFromPrimaryUntilCaughtUp() {
+        Long userId = createUserWithHabit();
+        double laggingReads = routed("primary", "replica-lagging");
+        
+        setReplicaLag(60);
+        assertFalse(routingDataSource.isReplicaUsable());
+        assertEquals(60.0, meterRegistry.get("jdbc.replica.lag").gauge().value());
+        assertEquals("Primary copy", habitService.getUserHabits(userId).get(0).getTitle());
+        assertTrue(routed("primary", "replica-lagging") > laggingReads);
+        
+        setReplicaLag(1);
+        assertEquals("Replica copy", habitService.getUserHabits(userId).get(0).getTitle());
+    }
+    
+    @Test
+    void testUnmeasurableReplica_ReadsFromPrimary() {
+        Long userId = createUserWithHabit();
+        double unavailableReads = routed("primary", "replica-unavailable");
+        
+        replica.execute("ALTER TABLE replica_status RENAME TO replica_status_hidden");
+        try {
+            routingDataSource.checkReplica();
+            assertFalse(routingDataSource.isReplicaUsable());
+            assertTrue(Double.isNaN(routingDataSource.getReplicaLagSeconds()));
+            assertEquals("Primary copy", habitService.getUserHabits(userId).get(0).getTitle());
+            assertTrue(routed("primary", "replica-unavailable") > unavailableReads);
+        } finally {
+            replica.execute("ALTER TABLE replica_status_hidden RENAME TO replica_status");
+        }
+    }
+    
+    @Test
+    void testHealth_ChecksEachPool() {
+        CompositeHealth db = (CompositeHealth) healthEndpoint.healthForPath("db");
+        
+        assertEquals(Set.of("primary", "replica"), db.getComponents().keySet());
+        assertEquals(Status.UP, db.getComponents().get("primary").getStatus());
+        assertEquals(Status.UP, db.getComponents().get("replica").getStatus());
+    }
+    
+    @Test
+    void testConnectionWithCredentials_NotSupported() {
+        assertThrows(SQLFeatureNotSupportedException.class, () -> routingDataSource.getConnection("sa", ""));
+    }
+    
+    @Test
+    void testAnalytics_CachedFromPrimaryWhenReplicaHasNotCaughtUp() {
+        Long userId = createUserWithHabit();
+        Long habitId = habitService.getUserHabits(userId).get(0).getId();
+        assertEquals(0L, analyticsService.getAnalytics(userId).getTotalStreak());
+        
+        // Invalidates the cached analytics; the replica never sees the log
+        habitService.logHabit(habitId, userId, LocalDate.now(), true);
+        
+        assertEquals(1L, analyticsService.getAnalytics(userId).getTotalStreak());
+        assertEquals(1L, analyticsService.getAnalytics(userId).getTotalStreak());
+    }
+}
@@ -0,0 +1,300 @@
+package com.habittracker.controller;
+
+import com.habittracker.ai.FakeOllamaServer;
+import com.habittracker.config.StatementCountingDataSource;
+import com.habittracker.dto.HabitLogBatchRequest;
+import com.habittracker.dto.HabitRequest;
+import com.habittracker.model.AIReport;
+import com.habittracker.model.User;
+import com.habittracker.repository.AIReportRepository;
+import com.habittracker.repository.UserRepository;
+import com.habittracker.security.JwtTokenProvider;
+import com.habittracker.service.AIReportService;
+import com.habittracker.service.HabitService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.ThrowingConsumer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * SQL statement budgets per endpoint. Every request is made once for a user with
+ * {@value #FEW_HABITS} habit and {@value #FEW_DAYS} days of logs and once for a user with
+ * {@value #MANY_HABITS} habits and {@value #MANY_DAYS} days each; both must execute the same
+ * number of statements, no more than the endpoint's budget. A per-habit or per-log query
+ * (N+1) fails the first check, any other extra query the second. Lower a budget when an
+ * endpoint gets cheaper.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class QueryBudgetTest {
+    
+    private static final int FEW_HABITS = 1;
+    private static final int FEW_DAYS = 3;
+    private static final int MANY_HABITS = 25;
+    private static final int MANY_DAYS = 60;
+    private static final LocalDate TODAY = LocalDate.now();
+    
+    private static final FakeOllamaServer ollama = startOllama();
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private DataSource dataSource;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private AIReportRepository aiReportRepository;
+    
+    @Autowired
+    private HabitService habitService;
+    
+    @Autowired
+    private AIReportService aiReportService;
+    
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+    
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    
+    private record Fixture(Long userId, String email, String token, List<Long> habitIds) {
+    }
+    
+    private static FakeOllamaServer startOllama() {
+        try {
+            return new FakeOllamaServer(0);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    
+    @DynamicPropertySource
+    static void ollamaProperties(DynamicPropertyRegistry registry) {
+        registry.add("ollama.base-url", ollama::getBaseUrl);
+    }
+    
+    @AfterAll
+    static void stopOllama() {
+        ollama.close();
+    }
+    
+    /**
+     * A user whose habits were completed on each of the {@code days} days before today,
+     * with one stored report per habit.
+     */
+    private Fixture seed(int habits, int days) {
+        User user = userRepository.save(User.builder()
+                .email(UUID.randomUUID() + "@example.com")
+                .name("Budget User")
+                .passwordHash(passwordEncoder.encode("password123"))
+                .build());
+        
+        List<Long> habitIds = new ArrayList<>();
+        List<HabitLogBatchRequest.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < habits; i++) {
+            HabitRequest request = new HabitRequest();
+            request.setTitle("Habit " + i);
+            request.setCategory(i % 2 == 0 ? "Fitness" : "Study");
+            Long habitId = habitService.createHabit(user.getId(), request).getId();
+            habitIds.add(habitId);
+            
+            for (int day = 1; day <= days; day++) {
+                HabitLogBatchRequest.Entry entry = new HabitLogBatchRequest.Entry();
+                entry.setHabitId(habitId);
+                entry.setDate(TODAY.minusDays(day));
+                entry.setStatus(true);
+                entries.add(entry);
+            }
+            aiReportRepository.save(AIReport.builder()
+                    .user(user)
+                    .startDate(TODAY.minusDays(7))
+                    .endDate(TODAY)
+                    .feedbackText("Report " + i)
+                    .build());
+        }
+        HabitLogBatchRequest batch = new HabitLogBatchRequest();
+        batch.setEntries(entries);
+        habitService.logHabits(user.getId(), batch);
+        
+        return new Fixture(user.getId(), user.getEmail(), jwtTokenProvider.generateToken(user.getEmail(), user.getId()), habitIds);
+    }
+    
+    private MockHttpServletRequestBuilder authorized(MockHttpServletRequestBuilder request, Fixture fixture) {
+        return request.header("Authorization", "Bearer " + fixture.token());
+    }
+    
+    private MockHttpServletRequestBuilder json(MockHttpServletRequestBuilder request, String body) {
+        return request.contentType(MediaType.APPLICATION_JSON).content(body);
+    }
+    
+    /**
+     * Statements executed on the request thread, including authentication.
+     */
+    private long statements(MockHttpServletRequestBuilder request) throws Exception {
+        try (StatementCountingDataSource.Count count = StatementCountingDataSource.count()) {
+            mockMvc.perform(request).andExpect(status().is2xxSuccessful());
+            return count.get();
+        }
+    }
+    
+    private void assertBudget(String endpoint, long budget, Function<Fixture, MockHttpServletRequestBuilder> request) throws Exception {
+        Fixture few = seed(FEW_HABITS, FEW_DAYS);
+        Fixture many = seed(MANY_HABITS, MANY_DAYS);
+        assertCounts(endpoint, budget, statements(request.apply(few)), statements(request.apply(many)));
+    }
+    
+    private static void assertCounts(String operation, long budget, long few, long many) {
+        assertEquals(few, many, operation + " ran " + few + " statements with " + FEW_HABITS
+                + " habit but " + many + " with " + MANY_HABITS + ": a query per habit or log (N+1)?");
+        assertTrue(many <= budget, operation + " ran " + many + " statements, over its budget of " + budget);
+    }
+    
+    /**
+     * {@link #assertBudget} for work that runs off the calling thread, measured on the
+     * process-wide total; nothing else touches the database while it runs.
+     */
+    private void assertTotalBudget(String operation, long budget, ThrowingConsumer<Fixture> work) throws Throwable {
+        StatementCountingDataSource counting = dataSource.unwrap(StatementCountingDataSource.class);
+        Fixture few = seed(FEW_HABITS, FEW_DAYS);
+        Fixture many = seed(MANY_HABITS, MANY_DAYS);
+        
+        long before = counting.getTotal();
+        work.accept(few);
+        long fewCount = counting.getTotal() - before;
+        before = counting.getTotal();
+        work.accept(many);
+        long manyCount = counting.getTotal() - before;
+        
+        assertCounts(operation, budget, fewCount, manyCount);
+    }
+    
+    @Test
+    void testCreateHabit() throws Exception {
+        assertBudget("POST /habits", 5, fixture -> authorized(json(post("/habits"),
+                "{\"title\":\"Read\",\"category\":\"Study\"}"), fixture));
+    }
+    
+    @Test
+    void testGetUserHabits() throws Exception {
+        assertBudget("GET /habits", 2, fixture -> authorized(get("/habits"), fixture));
+    }
+    
+    @Test
+    void testGetHabit() throws Exception {
+        assertBudget("GET /habits/{id}", 3, fixture -> authorized(get("/habits/{id}", fixture.habitIds().get(0)), fixture));
+    }
+    
+    @Test
+    void testUpdateHabit() throws Exception {
+        assertBudget("PUT /habits/{id}", 4, fixture -> authorized(json(put("/habits/{id}", fixture.habitIds().get(0)),
+                "{\"title\":\"Read more\",\"category\":\"Study\"}"), fixture));
+    }
+    
+    @Test
+    void testDeleteHabit() throws Exception {
+        assertBudget("DELETE /habits/{id}", 9, fixture -> authorized(delete("/habits/{id}", fixture.habitIds().get(0)), fixture));
+    }
+    
+    @Test
+    void testLogHabit() throws Exception {
+        assertBudget("POST /habits/{id}/logs", 5, fixture -> authorized(json(post("/habits/{id}/logs", fixture.habitIds().get(0)),
+                "{\"date\":\"" + TODAY + "\",\"status\":true}"), fixture));
+    }
+    
+    @Test
+    void testLogHabits() throws Exception {
+        // Includes locking the summary days before recounting them
+        assertBudget("POST /habits/logs:batch", 8, fixture -> authorized(json(post("/habits/logs:batch"),
+                fixture.habitIds().stream()
+                        .map(id -> "{\"habitId\":" + id + ",\"date\":\"" + TODAY + "\",\"status\":true}")
+                        .collect(Collectors.joining(",", "{\"entries\":[", "]}"))), fixture));
+    }
+    
+    @Test
+    void testGetHabitLogs() throws Throwable {
+        // The body is streamed on an async dispatch, so count everything
+        assertTotalBudget("GET /habits/{id}/logs", 3, fixture -> {
+            MvcResult result = mockMvc.perform(authorized(get("/habits/{id}/logs", fixture.habitIds().get(0))
+                    .param("limit", "2"), fixture)).andReturn();
+            result.getAsyncResult(10_000);
+            String body = mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            assertTrue(body.startsWith("{\"logs\":[{\"date\":"), body);
+            assertTrue(body.contains("\"nextCursor\":\""), body);
+        });
+    }
+    
+    @Test
+    void testGetAnalytics() throws Exception {
+        assertBudget("GET /analytics", 5, fixture -> authorized(get("/analytics"), fixture));
+    }
+    
+    @Test
+    void testGetCompactAnalytics() throws Exception {
+        assertBudget("GET /analytics?format=compact", 5, fixture -> authorized(get("/analytics").param("format", "compact"), fixture));
+    }
+    
+    @Test
+    void testGetUserReports() throws Exception {
+        assertBudget("GET /ai-reports", 2, fixture -> authorized(get("/ai-reports"), fixture));
+    }
+    
+    @Test
+    void testGetLatestReport() throws Exception {
+        assertBudget("GET /ai-reports/latest", 2, fixture -> authorized(get("/ai-reports/latest"), fixture));
+    }
+    
+    @Test
+    void testRegisterAndLogin() throws Exception {
+        String email = UUID.randomUUID() + "@example.com";
+        long register = statements(json(post("/auth/register"),
+                "{\"name\":\"Budget User\",\"email\":\"" + email + "\",\"password\":\"password123\"}"));
+        long login = statements(json(post("/auth/login"),
+                "{\"email\":\"" + email + "\",\"password\":\"password123\"}"));
+        
+        // Neither depends on how much data the user has
+        assertTrue(register <= 2, "POST /auth/register ran " + register + " statements, over its budget of 2");
+        assertTrue(login <= 1, "POST /auth/login ran " + login + " statements, over its budget of 1");
+    }
+    
+    @Test
+    void testStreamWeeklyReport() throws Throwable {
+        assertTotalBudget("POST /ai-reports/stream", 5, fixture -> {
+            MvcResult result = mockMvc.perform(authorized(post("/ai-reports/stream"), fixture)).andReturn();
+            result.getAsyncResult(10_000);
+            mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+        });
+    }
+    
+    @Test
+    void testGenerateWeeklyReportForUser() throws Throwable {
+        assertTotalBudget("weekly report generation", 7, fixture -> aiReportService.generateWeeklyReportForUser(fixture.userId()));
+    }
+}
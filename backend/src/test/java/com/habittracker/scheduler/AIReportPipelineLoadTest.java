@@ -0,0 +1,199 @@
+package com.habittracker.scheduler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.habittracker.ai.FakeOllamaServer;
+import com.habittracker.ai.FakeOllamaServer.LatencyDistribution;
+import com.habittracker.ai.OllamaService;
+import com.habittracker.ai.PromptCompletionCache;
+import com.habittracker.config.WebClientConfig;
+import com.habittracker.model.AIReport;
+import com.habittracker.model.Habit;
+import com.habittracker.model.JobCheckpoint;
+import com.habittracker.model.User;
+import com.habittracker.repository.AIReportRepository;
+import com.habittracker.repository.HabitLogRepository;
+import com.habittracker.repository.HabitRepository;
+import com.habittracker.repository.JobCheckpointRepository;
+import com.habittracker.repository.UserRepository;
+import com.habittracker.service.AIReportService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Drives the weekly report pipeline ({@link AIReportScheduler}, {@link AIReportService},
+ * {@link OllamaService}) over synthetic users against {@link FakeOllamaServer}, with the
+ * repositories mocked, so scheduler throughput can be regression-tested without a model or
+ * a database. Prints throughput and p50/p99 report latency and writes them to
+ * {@code target/load-test-result.json}. Its assertions depend on wall-clock throughput, so
+ * it only runs with {@code mvn -Pload-test test}. The defaults keep the run to a few seconds;
+ * scale it up with e.g. {@code -Dloadtest.users=5000 -Dloadtest.median-latency-ms=800}.
+ */
+@ExtendWith(MockitoExtension.class)
+@Tag("load")
+@Slf4j
+class AIReportPipelineLoadTest {
+    
+    private static final int USERS = Integer.getInteger("loadtest.users", 300);
+    private static final long MEDIAN_LATENCY_MILLIS = Long.getLong("loadtest.median-latency-ms", 40L);
+    private static final double LATENCY_SIGMA = Double.parseDouble(System.getProperty("loadtest.latency-sigma", "0.5"));
+    private static final double ERROR_RATE = Double.parseDouble(System.getProperty("loadtest.error-rate", "0.05"));
+    private static final double TOKENS_PER_SECOND = Double.parseDouble(System.getProperty("loadtest.tokens-per-second", "500"));
+    private static final int RESPONSE_TOKENS = Integer.getInteger("loadtest.response-tokens", 7);
+    private static final int MAX_CONNECTIONS = Integer.getInteger("loadtest.max-connections", 4);
+    private static final int PARALLELISM = Integer.getInteger("loadtest.parallelism", 16);
+    
+    @Mock
+    private UserRepository userRepository;
+    
+    @Mock
+    private HabitRepository habitRepository;
+    
+    @Mock
+    private HabitLogRepository habitLogRepository;
+    
+    @Mock
+    private AIReportRepository aiReportRepository;
+    
+    @Mock
+    private JobCheckpointRepository jobCheckpointRepository;
+    
+    @Test
+    void testWeeklyReportPipeline_ThroughputAndLatency() throws Exception {
+        List<Long> userIds = LongStream.rangeClosed(1, USERS).boxed().toList();
+        Map<Long, Long> startedAt = new ConcurrentHashMap<>();
+        List<Long> latencies = new ArrayList<>();
+        
+        when(userRepository.countByIdGreaterThan(anyLong())).thenAnswer(invocation -> {
+            Long lastId = invocation.getArgument(0);
+            return userIds.stream().filter(id -> id > lastId).count();
+        });
+        when(userRepository.findIdsAfter(anyLong(), any(Limit.class))).thenAnswer(invocation -> {
+            Long lastId = invocation.getArgument(0);
+            Limit limit = invocation.getArgument(1);
+            return userIds.stream().filter(id -> id > lastId).limit(limit.max()).toList();
+        });
+        when(userRepository.findById(anyLong())).thenAnswer(invocation -> {
+            Long userId = invocation.getArgument(0);
+            startedAt.put(userId, System.nanoTime());
+            return Optional.of(User.builder().id(userId).build());
+        });
+        when(habitRepository.findByUserId(anyLong())).thenAnswer(invocation -> List.of(
+                Habit.builder().id(invocation.getArgument(0)).title("Run").category("Fitness").build()));
+        when(habitLogRepository.countByHabitForUserAndDateBetween(anyLong(), any(), any())).thenReturn(List.of());
+        when(aiReportRepository.save(any(AIReport.class))).thenAnswer(invocation -> {
+            AIReport report = invocation.getArgument(0);
+            long latency = System.nanoTime() - startedAt.get(report.getUser().getId());
+            synchronized (latencies) {
+                latencies.add(latency);
+            }
+            return report;
+        });
+        when(jobCheckpointRepository.save(any(JobCheckpoint.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        
+        WebClientConfig webClientConfig = new WebClientConfig();
+        ConnectionProvider connectionProvider = webClientConfig.connectionProvider(
+                MAX_CONNECTIONS, Duration.ofMinutes(10), Duration.ofSeconds(30));
+        try (FakeOllamaServer ollama = FakeOllamaServer.builder()
+                .latency(LatencyDistribution.logNormal(MEDIAN_LATENCY_MILLIS, LATENCY_SIGMA))
+                .errorRate(ERROR_RATE)
+                .tokensPerSecond(TOKENS_PER_SECOND)
+                .responseTokens(RESPONSE_TOKENS)
+                .seed(42L)
+                .start()) {
+            OllamaService ollamaService = new OllamaService(
+                    webClientConfig.webClientBuilder(connectionProvider, Duration.ofSeconds(5), Duration.ofMinutes(5)),
+                    ollama.getBaseUrl(), new ObjectMapper(),
+                    new PromptCompletionCache(null, false, false, 0, Duration.ZERO), new SimpleMeterRegistry());
+            ReflectionTestUtils.setField(ollamaService, "model", "mistral");
+            ReflectionTestUtils.setField(ollamaService, "timeout", 300_000);
+            
+            AIReportService aiReportService = new AIReportService(
+                    aiReportRepository, userRepository, habitRepository, habitLogRepository, ollamaService);
+            AIReportScheduler scheduler = new AIReportScheduler(aiReportService, userRepository, jobCheckpointRepository,
+                    new SimpleMeterRegistry());
+            ReflectionTestUtils.setField(scheduler, "parallelism", PARALLELISM);
+            ReflectionTestUtils.setField(scheduler, "pageSize", 100);
+            ReflectionTestUtils.setField(scheduler, "progressLogInterval", Math.max(USERS / 10, 1));
+            ReflectionTestUtils.setField(scheduler, "resumeWindow", Duration.ofHours(24));
+            
+            long start = System.currentTimeMillis();
+            ReportRunProgress progress = scheduler.run().get(10, TimeUnit.MINUTES);
+            long elapsedMillis = System.currentTimeMillis() - start;
+            
+            latencies.sort(null);
+            double throughputPerMinute = progress.getThroughputPerMinute(System.currentTimeMillis());
+            // Mean service time of one request: lognormal mean plus token generation
+            double tokenMillis = TOKENS_PER_SECOND > 0 ? Math.floor(1000 / TOKENS_PER_SECOND) : 0;
+            double meanServiceMillis = MEDIAN_LATENCY_MILLIS * Math.exp(LATENCY_SIGMA * LATENCY_SIGMA / 2)
+                    + (1 - ERROR_RATE) * RESPONSE_TOKENS * tokenMillis;
+            double idealPerMinute = MAX_CONNECTIONS * 60_000 / meanServiceMillis;
+            
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("users", USERS);
+            result.put("maxConnections", MAX_CONNECTIONS);
+            result.put("parallelism", PARALLELISM);
+            result.put("medianLatencyMillis", MEDIAN_LATENCY_MILLIS);
+            result.put("errorRate", ERROR_RATE);
+            result.put("elapsedMillis", elapsedMillis);
+            result.put("done", progress.getDone());
+            result.put("failed", progress.getFailed());
+            result.put("throughputPerMinute", throughputPerMinute);
+            result.put("idealThroughputPerMinute", idealPerMinute);
+            result.put("p50LatencyMillis", percentileMillis(latencies, 50));
+            result.put("p99LatencyMillis", percentileMillis(latencies, 99));
+            result.put("maxInFlight", ollama.getMaxInFlight());
+            log.info("Weekly report pipeline load test: {}", result);
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+                    .writeValue(new File("target/load-test-result.json"), result);
+            
+            // Failure handling: every user is accounted for and a failed call stores nothing
+            assertEquals(USERS, progress.getDone() + progress.getFailed());
+            assertEquals(ollama.getErrors(), progress.getFailed());
+            assertEquals(USERS, ollama.getRequests());
+            verify(aiReportRepository, times(progress.getDone())).save(any(AIReport.class));
+            assertEquals(0, progress.getRemaining());
+            
+            // The pool is the only cap on Ollama concurrency and is kept full. Short runs reach
+            // about two thirds of the ideal (warm-up, page boundaries); calling Ollama one
+            // request at a time would reach at most 1 / MAX_CONNECTIONS of it.
+            assertEquals(MAX_CONNECTIONS, ollama.getMaxInFlight());
+            assertTrue(throughputPerMinute > idealPerMinute / 3,
+                    "throughput " + throughputPerMinute + "/min is under a third of the ideal " + idealPerMinute + "/min");
+        } finally {
+            connectionProvider.dispose();
+        }
+    }
+    
+    private static double percentileMillis(List<Long> sortedNanos, int percentile) {
+        if (sortedNanos.isEmpty()) {
+            return 0.0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sortedNanos.size());
+        return sortedNanos.get(Math.max(rank, 1) - 1) / 1_000_000.0;
+    }
+}
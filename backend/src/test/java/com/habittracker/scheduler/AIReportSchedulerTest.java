@@ -0,0 +1,199 @@
+package com.habittracker.scheduler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.habittracker.ai.FakeOllamaServer;
+import com.habittracker.ai.OllamaService;
+import com.habittracker.ai.PromptCompletionCache;
+import com.habittracker.config.WebClientConfig;
+import com.habittracker.model.AIReport;
+import com.habittracker.model.Habit;
+import com.habittracker.model.JobCheckpoint;
+import com.habittracker.model.User;
+import com.habittracker.repository.AIReportRepository;
+import com.habittracker.repository.HabitLogRepository;
+import com.habittracker.repository.HabitRepository;
+import com.habittracker.repository.JobCheckpointRepository;
+import com.habittracker.repository.UserRepository;
+import com.habittracker.service.AIReportService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AIReportSchedulerTest {
+    
+    private static final int USERS = 12;
+    private static final long FAILING_USER = 7L;
+    
+    @Mock
+    private UserRepository userRepository;
+    
+    @Mock
+    private HabitRepository habitRepository;
+    
+    @Mock
+    private HabitLogRepository habitLogRepository;
+    
+    @Mock
+    private AIReportRepository aiReportRepository;
+    
+    @Mock
+    private JobCheckpointRepository jobCheckpointRepository;
+    
+    private final List<Long> userIds = LongStream.rangeClosed(1, USERS).boxed().toList();
+    private final List<Long> checkpoints = new ArrayList<>();
+    private FakeOllamaServer ollama;
+    private ConnectionProvider connectionProvider;
+    private AIReportScheduler scheduler;
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        ollama = new FakeOllamaServer(200);
+        WebClientConfig webClientConfig = new WebClientConfig();
+        connectionProvider = webClientConfig.connectionProvider(2, Duration.ofSeconds(30), Duration.ofSeconds(30));
+        OllamaService ollamaService = new OllamaService(
+                webClientConfig.webClientBuilder(connectionProvider, Duration.ofSeconds(5), Duration.ofSeconds(30)),
+                ollama.getBaseUrl(), new ObjectMapper(),
+                new PromptCompletionCache(null, false, false, 0, Duration.ZERO), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(ollamaService, "model", "mistral");
+        ReflectionTestUtils.setField(ollamaService, "timeout", 5000);
+        
+        AIReportService aiReportService = new AIReportService(
+                aiReportRepository, userRepository, habitRepository, habitLogRepository, ollamaService);
+        scheduler = new AIReportScheduler(aiReportService, userRepository, jobCheckpointRepository, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(scheduler, "parallelism", 6);
+        ReflectionTestUtils.setField(scheduler, "pageSize", 5);
+        ReflectionTestUtils.setField(scheduler, "progressLogInterval", 5);
+        ReflectionTestUtils.setField(scheduler, "resumeWindow", Duration.ofHours(24));
+    }
+    
+    @AfterEach
+    void tearDown() {
+        connectionProvider.dispose();
+        ollama.close();
+    }
+    
+    /**
+     * Users 1 to {@link #USERS} with one habit each, of whom {@link #FAILING_USER} cannot be
+     * loaded; checkpoints are recorded in {@link #checkpoints}.
+     */
+    private void givenUsers() {
+        when(userRepository.findIdsAfter(anyLong(), any(Limit.class))).thenAnswer(invocation -> {
+            Long lastId = invocation.getArgument(0);
+            Limit limit = invocation.getArgument(1);
+            return userIds.stream().filter(id -> id > lastId).limit(limit.max()).toList();
+        });
+        when(userRepository.countByIdGreaterThan(anyLong())).thenAnswer(invocation -> {
+            Long lastId = invocation.getArgument(0);
+            return userIds.stream().filter(id -> id > lastId).count();
+        });
+        when(jobCheckpointRepository.save(any(JobCheckpoint.class))).thenAnswer(invocation -> {
+            JobCheckpoint checkpoint = invocation.getArgument(0);
+            checkpoints.add(checkpoint.getCompleted() ? -checkpoint.getLastId() : checkpoint.getLastId());
+            return checkpoint;
+        });
+        when(userRepository.findById(anyLong())).thenAnswer(invocation -> {
+            Long userId = invocation.getArgument(0);
+            if (userId == FAILING_USER) {
+                throw new IllegalStateException("database unavailable");
+            }
+            return Optional.of(User.builder().id(userId).build());
+        });
+        when(habitRepository.findByUserId(anyLong())).thenAnswer(invocation -> List.of(
+                Habit.builder().id(invocation.getArgument(0)).title("Run").category("Fitness").build()));
+        when(habitLogRepository.countByHabitForUserAndDateBetween(anyLong(), any(), any())).thenReturn(List.of());
+    }
+    
+    @Test
+    void testRun_ProcessesUsersConcurrentlyWithinLlmCap() throws Exception {
+        givenUsers();
+        ReportRunProgress progress = scheduler.run().get(30, TimeUnit.SECONDS);
+        
+        assertEquals(USERS, progress.getTotal());
+        assertEquals(USERS - 1, progress.getDone());
+        assertEquals(1, progress.getFailed());
+        assertEquals(0, progress.getRemaining());
+        assertTrue(progress.isFinished());
+        assertTrue(progress.getThroughputPerMinute(System.currentTimeMillis()) > 0);
+        
+        assertEquals(USERS - 1, ollama.getRequests());
+        assertEquals(2, ollama.getMaxInFlight());
+        verify(aiReportRepository, times(USERS - 1)).save(any(AIReport.class));
+        assertFalse(scheduler.isRunning());
+        // start, one checkpoint per page of 5, then completion (stored negated here)
+        assertEquals(List.of(0L, 5L, 10L, 12L, -12L), checkpoints);
+    }
+    
+    @Test
+    void testResumeInterruptedRun_ContinuesAfterCheckpoint() throws Exception {
+        givenUsers();
+        LocalDateTime startedAt = LocalDateTime.now().minusHours(1);
+        when(jobCheckpointRepository.findById(AIReportScheduler.JOB_NAME)).thenReturn(Optional.of(JobCheckpoint.builder()
+                .jobName(AIReportScheduler.JOB_NAME)
+                .lastId(8L)
+                .startedAt(startedAt)
+                .updatedAt(startedAt)
+                .completed(false)
+                .build()));
+        
+        scheduler.resumeInterruptedRun();
+        // The resumed run's future is not exposed, as the method is an event listener
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            while (scheduler.isRunning()) {
+                Thread.sleep(20);
+            }
+        });
+        
+        ReportRunProgress progress = scheduler.getProgress();
+        assertEquals(4, progress.getTotal());
+        assertEquals(4, progress.getDone());
+        assertEquals(4, ollama.getRequests());
+        verify(userRepository, never()).findById(1L);
+        assertEquals(List.of(8L, 12L, -12L), checkpoints);
+    }
+    
+    @Test
+    void testResumeInterruptedRun_IgnoresCompletedOrStaleCheckpoints() {
+        LocalDateTime now = LocalDateTime.now();
+        when(jobCheckpointRepository.findById(AIReportScheduler.JOB_NAME)).thenReturn(
+                Optional.of(JobCheckpoint.builder().lastId(8L).startedAt(now).updatedAt(now).completed(true).build()),
+                Optional.of(JobCheckpoint.builder().lastId(8L).startedAt(now.minusDays(3)).updatedAt(now).completed(false).build()));
+        
+        scheduler.resumeInterruptedRun();
+        scheduler.resumeInterruptedRun();
+        
+        assertNull(scheduler.getProgress());
+        verify(jobCheckpointRepository, never()).save(any());
+    }
+    
+    @Test
+    void testRun_OverlappingRunIsSkipped() throws Exception {
+        givenUsers();
+        var first = scheduler.run();
+        var second = scheduler.run().get(1, TimeUnit.SECONDS);
+        
+        assertSame(scheduler.getProgress(), second);
+        first.get(30, TimeUnit.SECONDS);
+        verify(userRepository, times(1)).countByIdGreaterThan(0L);
+    }
+}
@@ -0,0 +1,111 @@
+package com.habittracker.security;
+
+import com.habittracker.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JwtAuthenticationFilterTest {
+    
+    private static final String SECRET = "test-secret-key-that-is-at-least-32-characters-long";
+    
+    @Mock
+    private UserDetailsService userDetailsService;
+    
+    @Mock
+    private UserRepository userRepository;
+    
+    private final AtomicLong ticker = new AtomicLong();
+    private final JwtTokenProvider tokenProvider = new JwtTokenProvider(SECRET, 86400000L);
+    private JwtAuthenticationFilter filter;
+    
+    @BeforeEach
+    void setUp() {
+        UserStatusCache userStatusCache = new UserStatusCache(userRepository, Duration.ofSeconds(30), 100, ticker::get);
+        filter = new JwtAuthenticationFilter(tokenProvider, userDetailsService, userStatusCache);
+        ReflectionTestUtils.setField(filter, "stateless", true);
+        ReflectionTestUtils.setField(filter, "userCheckEnabled", true);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+    
+    private Authentication authenticate(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+    
+    @Test
+    void testStateless_AuthenticatesFromClaimsWithoutUserLookup() throws Exception {
+        when(userRepository.existsById(1L)).thenReturn(true);
+        String token = tokenProvider.generateToken("test@example.com", 1L);
+        
+        Authentication first = authenticate(token);
+        Authentication second = authenticate(token);
+        
+        AuthenticatedUser principal = (AuthenticatedUser) first.getPrincipal();
+        assertEquals(1L, principal.getUserId());
+        assertEquals("test@example.com", principal.getEmail());
+        assertEquals("ROLE_USER", first.getAuthorities().iterator().next().getAuthority());
+        assertNotNull(second);
+        verify(userRepository, times(1)).existsById(1L);
+        verifyNoInteractions(userDetailsService);
+    }
+    
+    @Test
+    void testStateless_RejectsDeletedUserOnceTtlExpires() throws Exception {
+        when(userRepository.existsById(1L)).thenReturn(true, false);
+        String token = tokenProvider.generateToken("test@example.com", 1L);
+        
+        assertNotNull(authenticate(token));
+        ticker.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertNotNull(authenticate(token));
+        ticker.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertNull(authenticate(token));
+        
+        verify(userRepository, times(2)).existsById(1L);
+    }
+    
+    @Test
+    void testStateless_InvalidTokenIsNotAuthenticated() throws Exception {
+        assertNull(authenticate("not-a-token"));
+        
+        verifyNoInteractions(userRepository, userDetailsService);
+    }
+    
+    @Test
+    void testUserStatusCache_IsSizeBounded() {
+        when(userRepository.existsById(any())).thenReturn(true);
+        UserStatusCache cache = new UserStatusCache(userRepository, Duration.ofSeconds(30), 2, ticker::get);
+        
+        cache.isActive(1L);
+        cache.isActive(2L);
+        cache.isActive(3L);
+        cache.isActive(1L);
+        
+        verify(userRepository, times(2)).existsById(1L);
+    }
+}
@@ -0,0 +1,176 @@
+package com.habittracker.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.habittracker.ai.FakeOllamaServer;
+import com.habittracker.ai.OllamaService;
+import com.habittracker.ai.PromptCompletionCache;
+import com.habittracker.config.WebClientConfig;
+import com.habittracker.dto.AIReportStreamEvent;
+import com.habittracker.model.AIReport;
+import com.habittracker.model.Habit;
+import com.habittracker.model.User;
+import com.habittracker.repository.AIReportRepository;
+import com.habittracker.repository.HabitLogRepository;
+import com.habittracker.repository.HabitRepository;
+import com.habittracker.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.function.Tuple2;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AIReportServiceTest {
+    
+    private static final long LATENCY_MILLIS = 1400;
+    
+    @Mock
+    private AIReportRepository aiReportRepository;
+    
+    @Mock
+    private UserRepository userRepository;
+    
+    @Mock
+    private HabitRepository habitRepository;
+    
+    @Mock
+    private HabitLogRepository habitLogRepository;
+    
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private FakeOllamaServer ollama;
+    private ConnectionProvider connectionProvider;
+    private AIReportService aiReportService;
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        ollama = new FakeOllamaServer(LATENCY_MILLIS);
+        WebClientConfig webClientConfig = new WebClientConfig();
+        connectionProvider = webClientConfig.connectionProvider(1, Duration.ofSeconds(30), Duration.ofSeconds(30));
+        OllamaService ollamaService = new OllamaService(
+                webClientConfig.webClientBuilder(connectionProvider, Duration.ofSeconds(5), Duration.ofSeconds(30)),
+                ollama.getBaseUrl(), new ObjectMapper(),
+                new PromptCompletionCache(null, false, false, 0, Duration.ZERO), meterRegistry);
+        ReflectionTestUtils.setField(ollamaService, "model", "mistral");
+        ReflectionTestUtils.setField(ollamaService, "timeout", 5000);
+        aiReportService = new AIReportService(aiReportRepository, userRepository, habitRepository, habitLogRepository, ollamaService);
+        
+        // Lenient, as the tests for a missing user or no habits stop before some of these
+        lenient().when(userRepository.findById(1L)).thenReturn(Optional.of(User.builder().id(1L).build()));
+        lenient().when(habitRepository.findByUserId(1L)).thenReturn(List.of(
+                Habit.builder().id(3L).title("Run").category("Fitness").build()));
+        lenient().when(habitLogRepository.countByHabitForUserAndDateBetween(anyLong(), any(), any())).thenReturn(List.of());
+    }
+    
+    @AfterEach
+    void tearDown() {
+        connectionProvider.dispose();
+        ollama.close();
+    }
+    
+    @Test
+    void testStreamWeeklyReport_RelaysTokensThenStoresReport() {
+        when(aiReportRepository.save(any(AIReport.class))).thenAnswer(invocation -> {
+            AIReport report = invocation.getArgument(0);
+            report.setId(42L);
+            return report;
+        });
+        
+        List<Tuple2<Long, AIReportStreamEvent>> events = aiReportService.streamWeeklyReport(1L)
+                .elapsed()
+                .collectList()
+                .block(Duration.ofSeconds(10));
+        
+        assertNotNull(events);
+        assertEquals(FakeOllamaServer.TOKENS.length + 1, events.size());
+        for (int i = 0; i < FakeOllamaServer.TOKENS.length; i++) {
+            assertEquals(AIReportStreamEvent.token(FakeOllamaServer.TOKENS[i]), events.get(i).getT2());
+        }
+        // The first fragment arrives after one token's worth of latency, not the whole completion
+        assertTrue(events.get(0).getT1() < LATENCY_MILLIS / 2, "time to first token: " + events.get(0).getT1() + " ms");
+        
+        AIReportStreamEvent last = events.get(events.size() - 1).getT2();
+        assertEquals(AIReportStreamEvent.REPORT, last.getType());
+        assertEquals(42L, last.getReport().getId());
+        assertEquals(String.join("", FakeOllamaServer.TOKENS), last.getReport().getFeedbackText());
+        
+        ArgumentCaptor<AIReport> saved = ArgumentCaptor.forClass(AIReport.class);
+        verify(aiReportRepository).save(saved.capture());
+        assertEquals(String.join("", FakeOllamaServer.TOKENS), saved.getValue().getFeedbackText());
+        assertEquals(1, meterRegistry.timer("ollama.requests", "operation", "stream", "outcome", "success").count());
+    }
+    
+    @Test
+    void testStreamWeeklyReport_CancelledStreamStoresNothing() {
+        List<AIReportStreamEvent> events = aiReportService.streamWeeklyReport(1L)
+                .take(2)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+        
+        assertEquals(2, events.size());
+        verify(aiReportRepository, never()).save(any());
+        assertEquals(1, meterRegistry.timer("ollama.requests", "operation", "stream", "outcome", "cancelled").count());
+        
+        // The only request slot was released on cancellation
+        when(aiReportRepository.save(any(AIReport.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        assertNotNull(aiReportService.streamWeeklyReport(1L).blockLast(Duration.ofSeconds(10)));
+    }
+    
+    @Test
+    void testStreamWeeklyReport_NoHabitsEndsWithErrorEvent() {
+        when(habitRepository.findByUserId(1L)).thenReturn(List.of());
+        
+        List<AIReportStreamEvent> events = aiReportService.streamWeeklyReport(1L)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+        
+        assertEquals(List.of(AIReportStreamEvent.error(AIReportService.NO_HABITS_MESSAGE)), events);
+        assertEquals(0, ollama.getRequests());
+        verify(aiReportRepository, never()).save(any());
+    }
+    
+    @Test
+    void testStreamWeeklyReport_UnknownUserFailsStreamNotCall() {
+        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+        
+        // The lookup happens on subscription, so the controller's error handling sees it
+        Flux<AIReportStreamEvent> events = assertDoesNotThrow(() -> aiReportService.streamWeeklyReport(1L));
+        verifyNoInteractions(userRepository);
+        
+        RuntimeException error = assertThrows(RuntimeException.class, () -> events.blockLast(Duration.ofSeconds(10)));
+        assertEquals("User not found", error.getMessage());
+        assertEquals(0, ollama.getRequests());
+    }
+    
+    @Test
+    void testGenerateWeeklyReportForUserAsync_QueuesOnSharedPoolWithoutBlocking() {
+        Mono<Void> first = aiReportService.generateWeeklyReportForUserAsync(1L);
+        Mono<Void> second = aiReportService.generateWeeklyReportForUserAsync(1L);
+        // Nothing runs until subscription
+        verifyNoInteractions(userRepository, aiReportRepository);
+        
+        Mono.when(first, second).block(Duration.ofSeconds(10));
+        
+        assertEquals(2, ollama.getRequests());
+        // One pooled connection, so the second request waited for the first
+        assertEquals(1, ollama.getMaxInFlight());
+        verify(aiReportRepository, times(2)).save(any(AIReport.class));
+    }
+}
@@ -0,0 +1,191 @@
+package com.habittracker.service;
+
+import com.habittracker.dto.AnalyticsResponse;
+import com.habittracker.model.Habit;
+import com.habittracker.model.HabitLog;
+import com.habittracker.model.HabitStats;
+import com.habittracker.repository.HabitLogDay;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the habit and analytics calculations on synthetic histories of {@code years}
+ * years for {@code habits} habits (about 80% of days logged, 70% of those completed).
+ *
+ * <p>{@code habitListBefore} is the old {@code HabitService.calculateStreak} and
+ * {@code calculateConsistency} for every habit on the list page; {@code habitStatsRebuild}
+ * is the full-history fold that now only runs on rebuild or backfill, since the list page
+ * reads {@code habit_stats}. The {@code analyticsBefore*} methods are the separate
+ * {@code AnalyticsService} calculations of {@link LegacyAnalytics}; {@code analyticsAfter}
+ * is the {@link AnalyticsEngine} pass that replaced all of them, over the per-day and
+ * per-category counts the database now aggregates and the streaks read from stored stats.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnalyticsBenchmark {
+    private static final String[] CATEGORIES = {"Health", "Fitness", "Study", "Sleep", "Work", "Personal", "Other"};
+    
+    @Param({"1", "5", "10"})
+    private int years;
+    
+    @Param({"1", "20", "200"})
+    private int habits;
+    
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private List<Habit> habitList;
+    private Map<Long, List<HabitLog>> logsByHabit;
+    private Map<Long, List<HabitLogDay>> daysByHabit;
+    private Map<Long, Long> storedStreaks;
+    private List<HabitLog> windowLogs;
+    private List<AnalyticsBuckets.DayCounts> windowDays;
+    private List<AnalyticsBuckets.CategoryCounts> windowCategories;
+    private LegacyAnalytics legacy;
+    
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        endDate = LocalDate.now();
+        startDate = endDate.minusDays(365);
+        LocalDate firstDay = endDate.minusYears(years).plusDays(1);
+        
+        habitList = new ArrayList<>();
+        logsByHabit = new HashMap<>();
+        daysByHabit = new HashMap<>();
+        storedStreaks = new HashMap<>();
+        windowLogs = new ArrayList<>();
+        List<HabitLog> history = new ArrayList<>();
+        
+        for (long id = 1; id <= habits; id++) {
+            Habit habit = Habit.builder()
+                    .id(id)
+                    .title("Habit " + id)
+                    .category(CATEGORIES[random.nextInt(CATEGORIES.length)])
+                    .build();
+            habitList.add(habit);
+            
+            List<HabitLog> logs = new ArrayList<>();
+            List<HabitLogDay> days = new ArrayList<>();
+            for (LocalDate date = firstDay; !date.isAfter(endDate); date = date.plusDays(1)) {
+                if (random.nextInt(100) >= 80) continue;
+                
+                boolean status = random.nextInt(100) < 70;
+                HabitLog log = HabitLog.builder().habit(habit).date(date).status(status).build();
+                logs.add(log);
+                days.add(new Day(date, status));
+                if (!date.isBefore(startDate)) {
+                    windowLogs.add(log);
+                }
+            }
+            history.addAll(logs);
+            logsByHabit.put(id, logs);
+            daysByHabit.put(id, days);
+            
+            HabitStats stats = HabitStats.empty(id);
+            HabitStatsService.fold(stats, days);
+            storedStreaks.put(id, stats.getCurrentStreak());
+        }
+        
+        Collections.shuffle(windowLogs, random);
+        windowDays = AnalyticsBuckets.days(windowLogs);
+        windowCategories = AnalyticsBuckets.categories(windowLogs);
+        legacy = new LegacyAnalytics(history);
+    }
+    
+    @Benchmark
+    public void habitListBefore(Blackhole blackhole) {
+        for (Habit habit : habitList) {
+            // findByHabitId returned a fresh list on every call, which calculateStreak then sorted
+            List<HabitLog> logs = new ArrayList<>(logsByHabit.get(habit.getId()));
+            blackhole.consume(legacyStreak(logs));
+            blackhole.consume(legacyConsistency(logsByHabit.get(habit.getId())));
+        }
+    }
+    
+    @Benchmark
+    public void habitStatsRebuild(Blackhole blackhole) {
+        for (Habit habit : habitList) {
+            HabitStats stats = HabitStats.empty(habit.getId());
+            HabitStatsService.fold(stats, daysByHabit.get(habit.getId()));
+            blackhole.consume(stats);
+        }
+    }
+    
+    @Benchmark
+    public Double analyticsBeforeOverallConsistency() {
+        return legacy.calculateOverallConsistency(windowLogs);
+    }
+    
+    @Benchmark
+    public void analyticsBeforeStreaks(Blackhole blackhole) {
+        blackhole.consume(legacy.calculateTotalStreak(habitList));
+        blackhole.consume(legacy.calculateCategoryStreaks(habitList));
+    }
+    
+    @Benchmark
+    public Object analyticsBeforeCategoryConsistency() {
+        return legacy.calculateCategoryConsistency(habitList, windowLogs);
+    }
+    
+    @Benchmark
+    public Object analyticsBeforeWeeklyTrend() {
+        return legacy.calculateWeeklyTrend(windowLogs);
+    }
+    
+    @Benchmark
+    public Object analyticsBeforeHeatmap() {
+        return legacy.calculateHeatmap(windowLogs);
+    }
+    
+    @Benchmark
+    public AnalyticsResponse analyticsAfter() {
+        return AnalyticsEngine.compute(habitList, windowDays, windowCategories, startDate, endDate, storedStreaks::get);
+    }
+    
+    private static long legacyStreak(List<HabitLog> logs) {
+        if (logs.isEmpty()) return 0L;
+        
+        logs.sort((a, b) -> b.getDate().compareTo(a.getDate()));
+        
+        long streak = 0;
+        LocalDate currentDate = LocalDate.now();
+        
+        for (HabitLog log : logs) {
+            if (log.getStatus() && (log.getDate().equals(currentDate) || log.getDate().equals(currentDate.minusDays(streak)))) {
+                streak++;
+                currentDate = log.getDate().minusDays(1);
+            } else if (log.getDate().isBefore(currentDate)) {
+                break;
+            }
+        }
+        
+        return streak;
+    }
+    
+    private static double legacyConsistency(List<HabitLog> logs) {
+        if (logs.isEmpty()) return 0.0;
+        
+        long completed = logs.stream().filter(HabitLog::getStatus).count();
+        return (double) completed / logs.size() * 100;
+    }
+    
+    private record Day(LocalDate date, Boolean status) implements HabitLogDay {
+        @Override
+        public LocalDate getDate() {
+            return date;
+        }
+        
+        @Override
+        public Boolean getStatus() {
+            return status;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.habittracker.service;
+
+import com.habittracker.model.HabitLog;
+import com.habittracker.repository.HabitLogCategoryCounts;
+import com.habittracker.repository.HabitLogDayCounts;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Groups logs in memory the way the {@code HabitLogRepository} count queries group them in
+ * the database, for feeding {@link AnalyticsEngine} in tests and benchmarks.
+ */
+final class AnalyticsBuckets {
+    private AnalyticsBuckets() {
+    }
+    
+    public record DayCounts(LocalDate date, Long logged, Long completed) implements HabitLogDayCounts {
+        @Override
+        public LocalDate getDate() {
+            return date;
+        }
+        
+        @Override
+        public Long getLogged() {
+            return logged;
+        }
+        
+        @Override
+        public Long getCompleted() {
+            return completed;
+        }
+    }
+    
+    public record CategoryCounts(String category, Long logged, Long completed) implements HabitLogCategoryCounts {
+        @Override
+        public String getCategory() {
+            return category;
+        }
+        
+        @Override
+        public Long getLogged() {
+            return logged;
+        }
+        
+        @Override
+        public Long getCompleted() {
+            return completed;
+        }
+    }
+    
+    public static List<DayCounts> days(List<HabitLog> logs) {
+        return group(logs, HabitLog::getDate, (date, counts) -> new DayCounts(date, counts[0], counts[1]));
+    }
+    
+    public static List<CategoryCounts> categories(List<HabitLog> logs) {
+        return group(logs, log -> log.getHabit().getCategory(), (category, counts) -> new CategoryCounts(category, counts[0], counts[1]));
+    }
+    
+    private static <K, R> List<R> group(List<HabitLog> logs, Function<HabitLog, K> key,
+                                        BiFunction<K, long[], R> row) {
+        Map<K, long[]> counts = new HashMap<>();
+        for (HabitLog log : logs) {
+            long[] bucket = counts.computeIfAbsent(key.apply(log), k -> new long[2]);
+            bucket[0]++;
+            if (log.getStatus()) {
+                bucket[1]++;
+            }
+        }
+        List<R> rows = new ArrayList<>();
+        counts.forEach((k, bucket) -> rows.add(row.apply(k, bucket)));
+        return rows;
+    }
+}
@@ -0,0 +1,132 @@
+package com.habittracker.service;
+
+import com.habittracker.dto.AnalyticsResponse;
+import com.habittracker.dto.CompactAnalyticsResponse;
+import com.habittracker.event.HabitDataChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalyticsCacheTest {
+    
+    private final AtomicLong ticker = new AtomicLong();
+    private final AtomicReference<LocalDate> today = new AtomicReference<>(LocalDate.of(2024, 3, 10));
+    private final AtomicInteger loads = new AtomicInteger();
+    
+    private AnalyticsCache cache;
+    
+    @BeforeEach
+    void setUp() {
+        cache = new AnalyticsCache(true, 2, Duration.ofMinutes(30), ticker::get, today::get);
+    }
+    
+    private AnalyticsResponse load() {
+        loads.incrementAndGet();
+        return AnalyticsResponse.builder().totalStreak((long) loads.get()).build();
+    }
+    
+    @Test
+    void testGetOrCompute_HitAfterMiss() {
+        AnalyticsResponse first = cache.getOrCompute(1L, this::load);
+        AnalyticsResponse second = cache.getOrCompute(1L, this::load);
+        
+        assertEquals(first, second);
+        assertNotSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+    
+    @Test
+    void testCallerChangingItsResponse_DoesNotChangeCachedEntry() {
+        AnalyticsResponse computed = AnalyticsResponse.builder()
+                .categoryStreaks(new HashMap<>(Map.of("Study", 3L)))
+                .weeklyTrend(new ArrayList<>(List.of(AnalyticsResponse.WeeklyData.builder().completedDays(2).build())))
+                .compact(CompactAnalyticsResponse.builder()
+                        .weeklyTrend(CompactAnalyticsResponse.WeeklySeries.builder().logged(new int[]{4}).build())
+                        .build())
+                .build();
+        AnalyticsResponse first = cache.getOrCompute(1L, () -> computed);
+        
+        computed.setTotalStreak(99L);
+        first.getCategoryStreaks().put("Study", 99L);
+        first.getWeeklyTrend().get(0).setCompletedDays(99);
+        first.getCompact().getWeeklyTrend().getLogged()[0] = 99;
+        first.setCompact(null);
+        AnalyticsResponse second = cache.getOrCompute(1L, this::load);
+        
+        assertNull(second.getTotalStreak());
+        assertEquals(3L, second.getCategoryStreaks().get("Study"));
+        assertEquals(2, second.getWeeklyTrend().get(0).getCompletedDays());
+        assertArrayEquals(new int[]{4}, second.getCompact().getWeeklyTrend().getLogged());
+    }
+    
+    @Test
+    void testInvalidation_DropsOnlyAffectedUser() {
+        cache.getOrCompute(1L, this::load);
+        cache.getOrCompute(2L, this::load);
+        
+        cache.onHabitDataChanged(new HabitDataChangedEvent(1L));
+        cache.getOrCompute(1L, this::load);
+        cache.getOrCompute(2L, this::load);
+        
+        assertEquals(3, loads.get());
+        assertEquals(1, cache.getInvalidations());
+    }
+    
+    @Test
+    void testInvalidationDuringComputation_ResultIsNotCached() {
+        cache.getOrCompute(1L, () -> {
+            cache.invalidate(1L);
+            return load();
+        });
+        cache.getOrCompute(1L, this::load);
+        
+        assertEquals(2, loads.get());
+    }
+    
+    @Test
+    void testSizeBound_EvictsLeastRecentlyUsed() {
+        cache.getOrCompute(1L, this::load);
+        cache.getOrCompute(2L, this::load);
+        cache.getOrCompute(1L, this::load);
+        cache.getOrCompute(3L, this::load);
+        
+        assertEquals(2, cache.getSize());
+        assertEquals(1, cache.getEvictions());
+        cache.getOrCompute(1L, this::load);
+        assertEquals(3, loads.get());
+    }
+    
+    @Test
+    void testIdleEntries_AreEvicted() {
+        cache.getOrCompute(1L, this::load);
+        ticker.addAndGet(Duration.ofMinutes(31).toNanos());
+        
+        cache.evictIdleEntries();
+        
+        assertEquals(0, cache.getSize());
+        assertEquals(1, cache.getEvictions());
+    }
+    
+    @Test
+    void testDateRollover_EntryFromPreviousDayIsRecomputed() {
+        cache.getOrCompute(1L, this::load);
+        today.set(today.get().plusDays(1));
+        
+        cache.getOrCompute(1L, this::load);
+        
+        assertEquals(2, loads.get());
+    }
+}
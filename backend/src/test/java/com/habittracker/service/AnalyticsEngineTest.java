@@ -0,0 +1,166 @@
+package com.habittracker.service;
+
+import com.habittracker.dto.AnalyticsResponse;
+import com.habittracker.dto.CompactAnalyticsResponse;
+import com.habittracker.model.Habit;
+import com.habittracker.model.HabitLog;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.RepetitionInfo;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks {@link AnalyticsEngine}, fed with the rows the database aggregation returns,
+ * against the list-based implementation it replaced, {@link LegacyAnalytics}. The one
+ * intentional difference is the heatmap: the old map kept whichever log of a day came
+ * last, while a day is now marked done only when every habit logged that day was completed.
+ */
+class AnalyticsEngineTest {
+    
+    private static final String[] CATEGORIES = {"Health", "Fitness", "Study", "Sleep", "Work", "Personal", "Other"};
+    
+    /**
+     * Each repetition uses its index as the random seed, so a failure is reproduced by
+     * rerunning it (on the same date, as streaks and weeks are relative to today).
+     */
+    @RepeatedTest(50)
+    void testCompute_MatchesLegacyImplementation(RepetitionInfo repetition) {
+        long seed = repetition.getCurrentRepetition();
+        Random random = new Random(seed);
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusDays(365);
+        
+        List<Habit> habits = new ArrayList<>();
+        int habitCount = 1 + random.nextInt(20);
+        for (long id = 1; id <= habitCount; id++) {
+            habits.add(Habit.builder()
+                    .id(id * 7)
+                    .title("Habit " + id)
+                    .category(CATEGORIES[random.nextInt(CATEGORIES.length)])
+                    .build());
+        }
+        
+        List<HabitLog> history = new ArrayList<>();
+        for (Habit habit : habits) {
+            int density = random.nextInt(101);
+            int completion = random.nextInt(101);
+            int historyDays = random.nextInt(3) == 0 ? 800 : 366;
+            for (int day = 0; day < historyDays; day++) {
+                if (random.nextInt(100) < density) {
+                    history.add(HabitLog.builder()
+                            .habit(habit)
+                            .date(endDate.minusDays(day))
+                            .status(random.nextInt(100) < completion)
+                            .build());
+                }
+            }
+        }
+        Collections.shuffle(history, random);
+        
+        List<HabitLog> windowLogs = history.stream()
+                .filter(log -> !log.getDate().isBefore(startDate) && !log.getDate().isAfter(endDate))
+                .collect(Collectors.toList());
+        LegacyAnalytics legacy = new LegacyAnalytics(history);
+        
+        AnalyticsResponse expected = legacy.getAnalytics(habits, windowLogs);
+        expected.setHeatmapData(fullyCompletedDays(windowLogs));
+        AnalyticsResponse actual = AnalyticsEngine.compute(habits, AnalyticsBuckets.days(windowLogs),
+                AnalyticsBuckets.categories(windowLogs), startDate, endDate, legacy::calculateHabitStreak);
+        
+        assertEquals(expected, actual, "seed " + seed + ", end date " + endDate);
+    }
+    
+    @Test
+    void testCompute_StreaksComeFromFullHistory() {
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusDays(365);
+        Habit habit = Habit.builder().id(1L).title("Read").category("Study").build();
+        
+        List<HabitLog> logs = new ArrayList<>();
+        for (int day = 0; day <= 365; day++) {
+            logs.add(HabitLog.builder().habit(habit).date(endDate.minusDays(day)).status(true).build());
+        }
+        
+        AnalyticsResponse response = AnalyticsEngine.compute(List.of(habit), AnalyticsBuckets.days(logs),
+                AnalyticsBuckets.categories(logs), startDate, endDate, habitId -> 500L);
+        
+        assertEquals(500L, response.getTotalStreak());
+        assertEquals(500L, response.getCategoryStreaks().get("Study"));
+        assertEquals(100.0, response.getOverallConsistency());
+        assertEquals(366, response.getHeatmapData().size());
+    }
+    
+    @Test
+    void testCompute_HeatmapMarksDaysWhereEveryLoggedHabitWasCompleted() {
+        LocalDate endDate = LocalDate.now();
+        Habit read = Habit.builder().id(1L).title("Read").category("Study").build();
+        Habit run = Habit.builder().id(2L).title("Run").category("Fitness").build();
+        List<HabitLog> logs = List.of(
+                HabitLog.builder().habit(read).date(endDate).status(true).build(),
+                HabitLog.builder().habit(run).date(endDate).status(false).build(),
+                HabitLog.builder().habit(read).date(endDate.minusDays(1)).status(true).build(),
+                HabitLog.builder().habit(run).date(endDate.minusDays(1)).status(true).build());
+        
+        AnalyticsResponse response = AnalyticsEngine.compute(List.of(read, run), AnalyticsBuckets.days(logs),
+                AnalyticsBuckets.categories(logs), endDate.minusDays(365), endDate, habitId -> 0L);
+        
+        assertEquals(Map.of(endDate.toString(), 0, endDate.minusDays(1).toString(), 1), response.getHeatmapData());
+        assertEquals(Map.of("Study", 100.0, "Fitness", 50.0), response.getCategoryConsistency());
+        assertEquals(75.0, response.getOverallConsistency());
+    }
+    
+    @Test
+    void testCompute_CompactFormEncodesHeatmapAndWeeks() {
+        LocalDate endDate = LocalDate.of(2024, 6, 12);
+        LocalDate startDate = endDate.minusDays(365);
+        Habit read = Habit.builder().id(1L).title("Read").category("Study").build();
+        Habit run = Habit.builder().id(2L).title("Run").category("Fitness").build();
+        List<HabitLog> logs = List.of(
+                HabitLog.builder().habit(read).date(startDate).status(true).build(),
+                HabitLog.builder().habit(read).date(endDate.minusDays(1)).status(true).build(),
+                HabitLog.builder().habit(run).date(endDate.minusDays(1)).status(false).build(),
+                HabitLog.builder().habit(read).date(endDate).status(true).build());
+        
+        AnalyticsResponse response = AnalyticsEngine.compute(List.of(read, run), AnalyticsBuckets.days(logs),
+                AnalyticsBuckets.categories(logs), startDate, endDate, habitId -> 1L);
+        CompactAnalyticsResponse compact = response.getCompact();
+        
+        assertEquals(startDate, compact.getHeatmap().getStartDate());
+        assertEquals(366, compact.getHeatmap().getDays());
+        byte[] logged = Base64.getDecoder().decode(compact.getHeatmap().getLogged());
+        byte[] completed = Base64.getDecoder().decode(compact.getHeatmap().getCompleted());
+        Map<String, Integer> heatmap = new HashMap<>();
+        for (int day = 0; day < 366; day++) {
+            if ((logged[day / 8] & 1 << day % 8) != 0) {
+                heatmap.put(startDate.plusDays(day).toString(), (completed[day / 8] & 1 << day % 8) != 0 ? 1 : 0);
+            }
+        }
+        assertEquals(response.getHeatmapData(), heatmap);
+        
+        // 2024-06-12 is a Wednesday: the last week started on Monday the 10th
+        assertEquals(LocalDate.of(2024, 3, 25), compact.getWeeklyTrend().getStartDate());
+        assertEquals(12, compact.getWeeklyTrend().getWeeks());
+        int[] weekLogged = new int[12];
+        int[] weekCompleted = new int[12];
+        weekLogged[11] = 3;
+        weekCompleted[11] = 2;
+        assertArrayEquals(weekLogged, compact.getWeeklyTrend().getLogged());
+        assertArrayEquals(weekCompleted, compact.getWeeklyTrend().getCompleted());
+        assertEquals(response.getOverallConsistency(), compact.getOverallConsistency());
+        assertEquals(response.getCategoryConsistency(), compact.getCategoryConsistency());
+        assertEquals(1L, compact.getTotalStreak());
+    }
+    
+    private static Map<String, Integer> fullyCompletedDays(List<HabitLog> logs) {
+        Map<String, Integer> heatmap = new HashMap<>();
+        for (HabitLog log : logs) {
+            heatmap.merge(log.getDate().toString(), log.getStatus() ? 1 : 0, Math::min);
+        }
+        return heatmap;
+    }
+}
@@ -0,0 +1,102 @@
+package com.habittracker.service;
+
+import com.habittracker.model.HabitCalendar;
+import com.habittracker.model.HabitStats;
+import com.habittracker.repository.HabitLogDay;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.RepetitionInfo;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HabitCalendarServiceTest {
+    
+    private static HabitLogDay day(LocalDate date, boolean status) {
+        return new HabitLogDay() {
+            @Override
+            public LocalDate getDate() {
+                return date;
+            }
+            
+            @Override
+            public Boolean getStatus() {
+                return status;
+            }
+        };
+    }
+    
+    private static List<HabitCalendar> toCalendars(List<HabitLogDay> days) {
+        Map<Integer, HabitCalendar> calendars = new TreeMap<>();
+        for (HabitLogDay day : days) {
+            HabitCalendar calendar = calendars.computeIfAbsent(day.getDate().getYear(), year -> HabitCalendar.empty(1L, year));
+            long[] logged = calendar.loggedBits();
+            long[] completed = calendar.completedBits();
+            CalendarBits.set(logged, day.getDate().getDayOfYear() - 1, true);
+            CalendarBits.set(completed, day.getDate().getDayOfYear() - 1, day.getStatus());
+            calendar.setBits(logged, completed);
+        }
+        return new ArrayList<>(calendars.values());
+    }
+    
+    @Test
+    void testCalendarBits_RunsAcrossWordBoundaries() {
+        long[] bits = CalendarBits.empty();
+        for (int i = 60; i < 130; i++) {
+            CalendarBits.set(bits, i, true);
+        }
+        CalendarBits.set(bits, 365, true);
+        
+        assertEquals(71, CalendarBits.count(bits));
+        assertEquals(60, CalendarBits.nextSetBit(bits, 0));
+        assertEquals(130, CalendarBits.nextClearBit(bits, 60));
+        assertEquals(365, CalendarBits.nextSetBit(bits, 130));
+        assertEquals(365, CalendarBits.lastSetBit(bits));
+        assertArrayEquals(bits, CalendarBits.fromBytes(CalendarBits.toBytes(bits)));
+    }
+    
+    @Test
+    void testComputeStats_StreakSpansYearBoundary() {
+        List<HabitLogDay> days = List.of(
+                day(LocalDate.of(2023, 12, 30), true),
+                day(LocalDate.of(2023, 12, 31), true),
+                day(LocalDate.of(2024, 1, 1), true),
+                day(LocalDate.of(2024, 1, 2), false));
+        
+        HabitStats stats = HabitCalendarService.computeStats(1L, toCalendars(days));
+        
+        assertEquals(3L, stats.getCurrentStreak());
+        assertEquals(LocalDate.of(2024, 1, 1), stats.getStreakEndDate());
+        assertEquals(LocalDate.of(2024, 1, 2), stats.getLastLogDate());
+        assertEquals(4L, stats.getLoggedCount());
+    }
+    
+    /**
+     * Each repetition uses its index as the random seed, so a failure is reproduced by
+     * rerunning it.
+     */
+    @RepeatedTest(20)
+    void testComputeStats_MatchesLogFold(RepetitionInfo repetition) {
+        long seed = repetition.getCurrentRepetition();
+        Random random = new Random(seed);
+        LocalDate start = LocalDate.of(2019, 1, 1).plusDays(random.nextInt(365));
+        int density = 50 + random.nextInt(50);
+        List<HabitLogDay> days = new ArrayList<>();
+        for (int i = 0; i < 5 * 366; i++) {
+            if (random.nextInt(100) < density) {
+                days.add(day(start.plusDays(i), random.nextInt(100) < density));
+            }
+        }
+        
+        HabitStats fromLogs = HabitStats.empty(1L);
+        HabitStatsService.fold(fromLogs, days);
+        
+        assertEquals(fromLogs, HabitCalendarService.computeStats(1L, toCalendars(days)), "seed " + seed);
+    }
+}
@@ -0,0 +1,29 @@
+package com.habittracker.service;
+
+import com.habittracker.PostgresTestDatabase;
+import org.junit.jupiter.api.BeforeAll;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+/**
+ * {@link HabitLogConcurrencyTest} against PostgreSQL, which runs the
+ * {@code INSERT ... ON CONFLICT} form of the upsert rather than H2's {@code MERGE}.
+ */
+@SpringBootTest(properties = {"management.server.port=0", "spring.jpa.show-sql=false"})
+@ActiveProfiles(inheritProfiles = false)
+class HabitLogConcurrencyPostgresTest extends HabitLogConcurrencyTest {
+    
+    private static PostgresTestDatabase database;
+    
+    @BeforeAll
+    static void createDatabase() {
+        database = PostgresTestDatabase.create();
+    }
+    
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        database.register(registry);
+    }
+}
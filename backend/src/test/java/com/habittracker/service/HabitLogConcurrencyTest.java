@@ -0,0 +1,248 @@
+package com.habittracker.service;
+
+import com.habittracker.dto.HabitLogBatchRequest;
+import com.habittracker.dto.HabitRequest;
+import com.habittracker.model.HabitStats;
+import com.habittracker.model.User;
+import com.habittracker.repository.HabitLogRepository;
+import com.habittracker.repository.HabitLogUpsertRepository.UpsertResult;
+import com.habittracker.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class HabitLogConcurrencyTest {
+    
+    private static final int THREADS = 16;
+    private static final int WRITES_PER_THREAD = 25;
+    
+    @Autowired
+    private HabitService habitService;
+    
+    @Autowired
+    private HabitStatsService habitStatsService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private HabitLogRepository habitLogRepository;
+    
+    @Autowired
+    private UserDailySummaryService userDailySummaryService;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private Long createUser() {
+        return userRepository.save(User.builder()
+                .email(UUID.randomUUID() + "@example.com")
+                .name("Test User")
+                .passwordHash("hash")
+                .build()).getId();
+    }
+    
+    private Long createHabit(Long userId) {
+        HabitRequest request = new HabitRequest();
+        request.setTitle("Exercise");
+        request.setCategory("Fitness");
+        return habitService.createHabit(userId, request).getId();
+    }
+    
+    @Test
+    void testLogHabit_ParallelWritersToSameDaysDoNotConflict() throws Exception {
+        Long userId = createUser();
+        Long habitId = createHabit(userId);
+        LocalDate today = LocalDate.now();
+        
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            Random random = new Random(thread);
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int write = 0; write < WRITES_PER_THREAD; write++) {
+                    habitService.logHabit(habitId, userId, today.minusDays(random.nextInt(3)), random.nextBoolean());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        
+        assertEquals(3, habitLogRepository.findByHabitId(habitId).size());
+        HabitStats expected = habitStatsService.compute(habitId);
+        assertEquals(3, expected.getLoggedCount());
+        assertEquals(expected, habitStatsService.getStats(habitId));
+    }
+    
+    @Test
+    void testLogHabitAndBatches_ConcurrentWritersKeepDailySummaryExact() throws Exception {
+        Long userId = createUser();
+        List<Long> habitIds = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            habitIds.add(createHabit(userId));
+        }
+        LocalDate today = LocalDate.now();
+        
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            Random random = new Random(thread);
+            boolean batches = thread % 2 == 0;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int write = 0; write < WRITES_PER_THREAD; write++) {
+                    if (batches) {
+                        HabitLogBatchRequest request = new HabitLogBatchRequest();
+                        List<HabitLogBatchRequest.Entry> entries = new ArrayList<>();
+                        for (int i = 0; i < 3; i++) {
+                            HabitLogBatchRequest.Entry entry = new HabitLogBatchRequest.Entry();
+                            entry.setHabitId(habitIds.get(random.nextInt(habitIds.size())));
+                            entry.setDate(today.minusDays(random.nextInt(2)));
+                            entry.setStatus(random.nextBoolean());
+                            entries.add(entry);
+                        }
+                        request.setEntries(entries);
+                        habitService.logHabits(userId, request);
+                    } else {
+                        habitService.logHabit(habitIds.get(random.nextInt(habitIds.size())), userId,
+                                today.minusDays(random.nextInt(2)), random.nextBoolean());
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        
+        assertSummaryMatchesLogs(userId, today.minusDays(1), today);
+    }
+    
+    @Test
+    void testLogHabits_RecountWaitsForConcurrentLogOfSameDay() throws Exception {
+        Long userId = createUser();
+        Long singleHabitId = createHabit(userId);
+        Long batchHabitId = createHabit(userId);
+        LocalDate today = LocalDate.now();
+        habitService.logHabit(batchHabitId, userId, today, false);
+        
+        HabitLogBatchRequest.Entry entry = new HabitLogBatchRequest.Entry();
+        entry.setHabitId(batchHabitId);
+        entry.setDate(today);
+        entry.setStatus(true);
+        HabitLogBatchRequest request = new HabitLogBatchRequest();
+        request.setEntries(List.of(entry));
+        
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch batchStarted = new CountDownLatch(1);
+        Future<?> batch = new TransactionTemplate(transactionManager).execute(status -> {
+            // Holds the day's summary row until this transaction commits
+            habitService.logHabit(singleHabitId, userId, today, true);
+            Future<?> submitted = executor.submit(() -> {
+                batchStarted.countDown();
+                return habitService.logHabits(userId, request);
+            });
+            try {
+                batchStarted.await();
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return submitted;
+        });
+        batch.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+        
+        assertSummaryMatchesLogs(userId, today, today);
+    }
+    
+    private void assertSummaryMatchesLogs(Long userId, LocalDate start, LocalDate end) {
+        Map<LocalDate, List<Long>> expected = new TreeMap<>();
+        habitLogRepository.findByUserIdAndDateBetween(userId, start, end).forEach(log ->
+                expected.merge(log.getDate(), List.of(1L, log.getStatus() ? 1L : 0L),
+                        (a, b) -> List.of(a.get(0) + b.get(0), a.get(1) + b.get(1))));
+        Map<LocalDate, List<Long>> summary = new TreeMap<>();
+        userDailySummaryService.getDays(userId, start, end).forEach(day ->
+                summary.put(day.getDate(), List.of(day.getLogged(), day.getCompleted())));
+        assertEquals(expected, summary);
+    }
+    
+    @Test
+    void testLogHabit_DistinguishesMissingAndForeignHabits() {
+        Long ownerId = createUser();
+        Long otherUserId = createUser();
+        Long habitId = createHabit(ownerId);
+        LocalDate today = LocalDate.now();
+        
+        RuntimeException missing = assertThrows(RuntimeException.class,
+                () -> habitService.logHabit(Long.MAX_VALUE, ownerId, today, true));
+        RuntimeException foreign = assertThrows(RuntimeException.class,
+                () -> habitService.logHabit(habitId, otherUserId, today, true));
+        
+        assertEquals("Habit not found", missing.getMessage());
+        assertEquals("Unauthorized", foreign.getMessage());
+        assertTrue(habitLogRepository.findByHabitId(habitId).isEmpty());
+    }
+    
+    @Test
+    void testUpsert_ReportsOwnerPreviousStatusAndWhetherItInserted() {
+        Long ownerId = createUser();
+        Long otherUserId = createUser();
+        Long habitId = createHabit(ownerId);
+        LocalDate today = LocalDate.now();
+        
+        assertEquals(new UpsertResult(ownerId, null, true), habitLogRepository.upsert(habitId, ownerId, today, true));
+        assertEquals(new UpsertResult(ownerId, true, false), habitLogRepository.upsert(habitId, ownerId, today, false));
+        assertEquals(new UpsertResult(ownerId, false, false), habitLogRepository.upsert(habitId, ownerId, today, false));
+        assertEquals(new UpsertResult(ownerId, null, false), habitLogRepository.upsert(habitId, otherUserId, today, true));
+        assertEquals(new UpsertResult(null, null, false), habitLogRepository.upsert(Long.MAX_VALUE, ownerId, today, true));
+        
+        assertFalse(habitLogRepository.findByHabitIdAndDate(habitId, today).orElseThrow().getStatus());
+    }
+    
+    @Test
+    void testLogHabit_ToggleUpdatesStatsIncrementally() {
+        Long userId = createUser();
+        Long habitId = createHabit(userId);
+        LocalDate today = LocalDate.now();
+        
+        habitService.logHabit(habitId, userId, today.minusDays(1), true);
+        habitService.logHabit(habitId, userId, today, true);
+        habitService.logHabit(habitId, userId, today, false);
+        habitService.logHabit(habitId, userId, today, true);
+        
+        HabitStats stats = habitStatsService.getStats(habitId);
+        assertEquals(2, stats.getLoggedCount());
+        assertEquals(2, stats.getCompletedCount());
+        assertEquals(2, stats.currentStreakAsOf(today));
+    }
+}
@@ -0,0 +1,159 @@
+package com.habittracker.service;
+
+import com.habittracker.PostgresTestDatabase;
+import com.habittracker.dto.HabitRequest;
+import com.habittracker.model.User;
+import com.habittracker.repository.HabitLogRepository;
+import com.habittracker.repository.UserRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link HabitLogPartitionService} against a partitioned {@code habit_logs} on PostgreSQL.
+ */
+@SpringBootTest(properties = {"management.server.port=0", "spring.jpa.show-sql=false"})
+@ActiveProfiles(inheritProfiles = false)
+class HabitLogPartitionPostgresTest {
+    
+    private static PostgresTestDatabase database;
+    
+    @Autowired
+    private HabitLogPartitionService partitionService;
+    
+    @Autowired
+    private HabitService habitService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private HabitLogRepository habitLogRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @BeforeAll
+    static void createDatabase() {
+        database = PostgresTestDatabase.create();
+    }
+    
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        database.register(registry);
+    }
+    
+    private Long createHabit(Long userId) {
+        HabitRequest request = new HabitRequest();
+        request.setTitle("Exercise");
+        request.setCategory("Fitness");
+        return habitService.createHabit(userId, request).getId();
+    }
+    
+    private Long createUser() {
+        return userRepository.save(User.builder()
+                .email(UUID.randomUUID() + "@example.com")
+                .name("Test User")
+                .passwordHash("hash")
+                .build()).getId();
+    }
+    
+    private int countRows(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+    
+    @Test
+    void testEnsurePartitions_MovesMonthsOutOfDefaultPartition() {
+        Long userId = createUser();
+        Long habitId = createHabit(userId);
+        LocalDate today = LocalDate.now();
+        YearMonth ahead = YearMonth.from(today).plusMonths(6);
+        YearMonth backfilled = YearMonth.of(2019, 3);
+        habitService.logHabit(habitId, userId, ahead.atDay(1), true);
+        habitService.logHabit(habitId, userId, ahead.atDay(2), false);
+        habitService.logHabit(habitId, userId, backfilled.atDay(10), true);
+        assertEquals(3, countRows(HabitLogPartitionService.DEFAULT_PARTITION));
+        
+        assertTrue(partitionService.ensurePartitions(today, 6).containsAll(List.of(backfilled, ahead)));
+        
+        assertTrue(partitionService.monthPartitions().containsAll(List.of(backfilled, ahead)));
+        assertEquals(0, countRows(HabitLogPartitionService.DEFAULT_PARTITION));
+        assertEquals(2, countRows(HabitLogPartitionService.partitionName(ahead)));
+        assertEquals(1, countRows(HabitLogPartitionService.partitionName(backfilled)));
+        assertEquals(3, habitLogRepository.findByHabitId(habitId).size());
+        
+        habitService.logHabit(habitId, userId, ahead.atDay(3), true);
+        assertEquals(3, countRows(HabitLogPartitionService.partitionName(ahead)));
+        assertTrue(partitionService.ensurePartitions(today, 6).isEmpty());
+    }
+    
+    @Test
+    void testMergeIntoArchive_ReattachesArchiveWithoutScanningIt() {
+        Long userId = createUser();
+        Long habitId = createHabit(userId);
+        YearMonth month = YearMonth.of(2016, 1);
+        habitService.logHabit(habitId, userId, LocalDate.of(1999, 12, 31), true);
+        habitService.logHabit(habitId, userId, month.atDay(5), true);
+        habitService.logHabit(habitId, userId, month.atDay(6), false);
+        partitionService.ensurePartitions(LocalDate.now(), 0);
+        assertTrue(partitionService.monthPartitions().contains(month));
+        
+        partitionService.prepareArchiveBound(month);
+        assertTrue(jdbcTemplate.queryForObject("SELECT convalidated FROM pg_constraint WHERE conname = ?",
+                Boolean.class, HabitLogPartitionService.ARCHIVE_BOUND));
+        assertTrue(attachArchiveMessages(month).stream()
+                .anyMatch(message -> message.contains("implied by existing constraints")));
+        
+        partitionService.mergeIntoArchive(month);
+        
+        assertEquals(Optional.of(LocalDate.of(2016, 2, 1)), partitionService.archiveUpperBound());
+        assertFalse(partitionService.monthPartitions().contains(month));
+        assertEquals(3, countRows(HabitLogPartitionService.ARCHIVE_PARTITION));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pg_constraint WHERE conname = ?",
+                Integer.class, HabitLogPartitionService.ARCHIVE_BOUND));
+        assertEquals(3, habitLogRepository.findByHabitId(habitId).size());
+    }
+    
+    /**
+     * Server messages from re-attaching the archive to cover {@code month}, as the merge
+     * does, in a transaction that is rolled back.
+     */
+    private List<String> attachArchiveMessages(YearMonth month) {
+        return jdbcTemplate.execute((ConnectionCallback<List<String>>) connection -> {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("ALTER TABLE habit_logs DETACH PARTITION " + HabitLogPartitionService.ARCHIVE_PARTITION);
+                statement.execute("ALTER TABLE habit_logs DETACH PARTITION " + HabitLogPartitionService.partitionName(month));
+                statement.execute("SET LOCAL client_min_messages = debug1");
+                statement.clearWarnings();
+                statement.execute(String.format("ALTER TABLE habit_logs ATTACH PARTITION %s FOR VALUES FROM (MINVALUE) TO ('%s')",
+                        HabitLogPartitionService.ARCHIVE_PARTITION, month.plusMonths(1).atDay(1)));
+                List<String> messages = new ArrayList<>();
+                for (SQLWarning warning = statement.getWarnings(); warning != null; warning = warning.getNextWarning()) {
+                    messages.add(warning.getMessage());
+                }
+                return messages;
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        });
+    }
+}
@@ -0,0 +1,88 @@
+package com.habittracker.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HabitLogPartitionServiceTest {
+    
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    
+    @InjectMocks
+    private HabitLogPartitionService partitionService;
+    
+    @TempDir
+    private Path directory;
+    
+    @Test
+    void testPartitionNames_RoundTrip() {
+        assertEquals("habit_logs_p202403", HabitLogPartitionService.partitionName(YearMonth.of(2024, 3)));
+        assertEquals(Optional.of(YearMonth.of(2024, 3)), HabitLogPartitionService.partitionMonth("habit_logs_p202403"));
+        assertEquals(Optional.empty(), HabitLogPartitionService.partitionMonth("habit_logs_archive"));
+        assertEquals(Optional.empty(), HabitLogPartitionService.partitionMonth("habit_logs_default"));
+    }
+    
+    @Test
+    void testUpperBound_ParsesPartitionBound() {
+        assertEquals(Optional.of(LocalDate.of(2022, 2, 1)),
+                HabitLogPartitionService.upperBound("FOR VALUES FROM (MINVALUE) TO ('2022-02-01')"));
+        assertEquals(Optional.empty(), HabitLogPartitionService.upperBound("DEFAULT"));
+    }
+    
+    @Test
+    void testMonthsToArchive_OnlyWholeMonthsPastHorizon() {
+        List<YearMonth> existing = List.of(YearMonth.of(2024, 6), YearMonth.of(2022, 5), YearMonth.of(2022, 6), YearMonth.of(2022, 4));
+        
+        assertEquals(List.of(YearMonth.of(2022, 4), YearMonth.of(2022, 5)),
+                HabitLogPartitionService.monthsToArchive(existing, LocalDate.of(2024, 6, 15), 24));
+    }
+    
+    @Test
+    void testExport_WritesGzipCsvAndNoTempFile() throws Exception {
+        ResultSet row = mock(ResultSet.class);
+        when(row.getLong(1)).thenReturn(7L);
+        when(row.getLong(2)).thenReturn(3L);
+        when(row.getLong(3)).thenReturn(5L);
+        when(row.getDate(4)).thenReturn(Date.valueOf(LocalDate.of(2022, 4, 2)));
+        when(row.getBoolean(5)).thenReturn(true);
+        doAnswer(invocation -> {
+            invocation.getArgument(1, RowCallbackHandler.class).processRow(row);
+            return null;
+        }).when(jdbcTemplate).query(eq("SELECT id, habit_id, user_id, date, status FROM habit_logs_p202204 ORDER BY habit_id, date"),
+                any(RowCallbackHandler.class));
+        
+        Path file = partitionService.export(YearMonth.of(2022, 4), directory);
+        
+        assertEquals(directory.resolve("habit_logs_2022_04.csv.gz"), file);
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            assertEquals("id,habit_id,user_id,date,status\n7,3,5,2022-04-02,true\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        try (var files = Files.list(directory)) {
+            assertEquals(List.of(file), files.toList());
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.habittracker.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.habittracker.dto.HabitLogBatchRequest;
+import com.habittracker.dto.HabitLogBatchResponse;
+import com.habittracker.dto.HabitLogBatchResponse.Outcome;
+import com.habittracker.event.HabitDataChangedEvent;
+import com.habittracker.repository.HabitLogDay;
+import com.habittracker.repository.HabitLogRepository;
+import com.habittracker.repository.HabitLogUpsertRepository;
+import com.habittracker.repository.HabitRepository;
+import com.habittracker.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HabitServiceTest {
+    
+    @Mock
+    private HabitRepository habitRepository;
+    
+    @Mock
+    private HabitLogRepository habitLogRepository;
+    
+    @Mock
+    private UserRepository userRepository;
+    
+    @Mock
+    private HabitStatsService habitStatsService;
+    
+    @Mock
+    private HabitCalendarService habitCalendarService;
+    
+    @Mock
+    private UserDailySummaryService userDailySummaryService;
+    
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+    
+    @InjectMocks
+    private HabitService habitService;
+    
+    private static HabitLogBatchRequest.Entry entry(Long habitId, LocalDate date, boolean status) {
+        HabitLogBatchRequest.Entry entry = new HabitLogBatchRequest.Entry();
+        entry.setHabitId(habitId);
+        entry.setDate(date);
+        entry.setStatus(status);
+        return entry;
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void testLogHabits_UpsertsOwnedEntriesAndRejectsOthers() {
+        LocalDate day = LocalDate.of(2024, 3, 10);
+        HabitLogBatchRequest request = new HabitLogBatchRequest();
+        request.setEntries(List.of(
+                entry(2L, day, true),
+                entry(9L, day, true),
+                entry(1L, day.plusDays(1), false),
+                entry(1L, day, true)));
+        when(habitRepository.findIdsByIdInAndUserId(anyCollection(), eq(5L))).thenReturn(List.of(1L, 2L));
+        when(habitCalendarService.getMode()).thenReturn(HabitCalendarService.Mode.DUAL_WRITE);
+        
+        HabitLogBatchResponse response = habitService.logHabits(5L, request);
+        
+        assertEquals(3, response.getSaved());
+        assertEquals(1, response.getRejected());
+        assertEquals(List.of(Outcome.SAVED, Outcome.REJECTED, Outcome.SAVED, Outcome.SAVED),
+                response.getResults().stream().map(HabitLogBatchResponse.EntryResult::getOutcome).toList());
+        
+        ArgumentCaptor<List<HabitLogUpsertRepository.Entry>> upserts = ArgumentCaptor.forClass(List.class);
+        verify(habitLogRepository).upsertAll(eq(5L), upserts.capture());
+        assertEquals(List.of(
+                new HabitLogUpsertRepository.Entry(1L, day, true),
+                new HabitLogUpsertRepository.Entry(1L, day.plusDays(1), false),
+                new HabitLogUpsertRepository.Entry(2L, day, true)), upserts.getValue());
+        
+        verify(habitCalendarService).rebuild(1L);
+        verify(habitCalendarService).rebuild(2L);
+        // One stats rebuild for both owned habits, none for the rejected one
+        verify(habitStatsService).rebuildAll(Set.of(1L, 2L));
+        verify(habitStatsService, never()).rebuild(anyLong());
+        verify(userDailySummaryService).recountDays(5L, Set.of(day, day.plusDays(1)));
+        verify(eventPublisher, times(1)).publishEvent(any(HabitDataChangedEvent.class));
+    }
+    
+    @Test
+    void testLogHabits_NothingOwnedWritesNothing() {
+        HabitLogBatchRequest request = new HabitLogBatchRequest();
+        request.setEntries(List.of(entry(9L, LocalDate.of(2024, 3, 10), true)));
+        when(habitRepository.findIdsByIdInAndUserId(anyCollection(), eq(5L))).thenReturn(List.of());
+        
+        HabitLogBatchResponse response = habitService.logHabits(5L, request);
+        
+        assertEquals(0, response.getSaved());
+        assertEquals(1, response.getRejected());
+        verify(habitLogRepository, never()).upsertAll(any(), any());
+        verifyNoInteractions(habitStatsService, userDailySummaryService, eventPublisher);
+    }
+    
+    private static HabitLogDay day(LocalDate date, boolean status) {
+        return new HabitLogDay() {
+            @Override
+            public LocalDate getDate() {
+                return date;
+            }
+            
+            @Override
+            public Boolean getStatus() {
+                return status;
+            }
+        };
+    }
+    
+    @Test
+    void testWriteHabitLogs_WritesPageAndCursorOfNextPage() throws Exception {
+        LocalDate day = LocalDate.of(2024, 3, 10);
+        when(habitLogRepository.streamDaysByHabitId(1L, day.minusDays(1), day.plusDays(30), Limit.of(3)))
+                .thenReturn(Stream.of(day(day, true), day(day.plusDays(1), false), day(day.plusDays(2), true)));
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        habitService.writeHabitLogs(1L, day, day.plusDays(30), null, 2, out);
+        
+        assertEquals("{\"logs\":[{\"date\":\"2024-03-10\",\"status\":true},{\"date\":\"2024-03-11\",\"status\":false}],"
+                + "\"nextCursor\":\"2024-03-11\"}", out.toString());
+    }
+    
+    @Test
+    void testWriteHabitLogs_ResumesAfterCursorAndEndsWithoutNextCursor() throws Exception {
+        LocalDate cursor = LocalDate.of(2024, 3, 11);
+        when(habitLogRepository.streamDaysByHabitId(eq(1L), eq(cursor), any(LocalDate.class), eq(Limit.of(1001))))
+                .thenReturn(Stream.of(day(cursor.plusDays(1), true)));
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        habitService.writeHabitLogs(1L, cursor.minusDays(5), null, cursor, 5000, out);
+        
+        assertEquals("{\"logs\":[{\"date\":\"2024-03-12\",\"status\":true}],\"nextCursor\":null}", out.toString());
+    }
+}
@@ -0,0 +1,172 @@
+package com.habittracker.service;
+
+import com.habittracker.model.HabitStats;
+import com.habittracker.repository.HabitLogDay;
+import com.habittracker.repository.HabitLogHabitDay;
+import com.habittracker.repository.HabitLogRepository;
+import com.habittracker.repository.HabitStatsRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HabitStatsServiceTest {
+    
+    private static final LocalDate TODAY = LocalDate.of(2024, 3, 10);
+    
+    @Mock
+    private HabitStatsRepository habitStatsRepository;
+    
+    @Mock
+    private HabitLogRepository habitLogRepository;
+    
+    @Mock
+    private HabitCalendarService habitCalendarService;
+    
+    @InjectMocks
+    private HabitStatsService habitStatsService;
+    
+    private static HabitLogDay day(LocalDate date, boolean status) {
+        return new HabitLogDay() {
+            @Override
+            public LocalDate getDate() {
+                return date;
+            }
+            
+            @Override
+            public Boolean getStatus() {
+                return status;
+            }
+        };
+    }
+    
+    private static HabitLogHabitDay habitDay(Long habitId, LocalDate date, boolean status) {
+        return new HabitLogHabitDay() {
+            @Override
+            public Long getHabitId() {
+                return habitId;
+            }
+            
+            @Override
+            public LocalDate getDate() {
+                return date;
+            }
+            
+            @Override
+            public Boolean getStatus() {
+                return status;
+            }
+        };
+    }
+    
+    @Test
+    void testFold_ComputesAllFields() {
+        HabitStats stats = HabitStats.empty(1L);
+        HabitStatsService.fold(stats, List.of(
+                day(TODAY.minusDays(6), true),
+                day(TODAY.minusDays(5), true),
+                day(TODAY.minusDays(4), true),
+                day(TODAY.minusDays(3), false),
+                day(TODAY.minusDays(1), true),
+                day(TODAY, true)));
+        
+        assertEquals(6L, stats.getLoggedCount());
+        assertEquals(5L, stats.getCompletedCount());
+        assertEquals(3L, stats.getLongestStreak());
+        assertEquals(2L, stats.getCurrentStreak());
+        assertEquals(TODAY, stats.getStreakEndDate());
+        assertEquals(TODAY, stats.getLastLogDate());
+        assertEquals(2L, stats.currentStreakAsOf(TODAY));
+        assertEquals(0L, stats.currentStreakAsOf(TODAY.plusDays(1)));
+    }
+    
+    @Test
+    void testRecordLog_AppendExtendsStreakWithoutReloadingLogs() {
+        HabitStats stats = HabitStats.builder()
+                .habitId(1L)
+                .currentStreak(3L)
+                .streakEndDate(TODAY.minusDays(1))
+                .longestStreak(3L)
+                .completedCount(3L)
+                .loggedCount(4L)
+                .lastLogDate(TODAY.minusDays(1))
+                .build();
+        when(habitStatsRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(stats));
+        
+        habitStatsService.recordLog(1L, TODAY, null, true);
+        
+        assertEquals(4L, stats.getCurrentStreak());
+        assertEquals(4L, stats.getLongestStreak());
+        assertEquals(4L, stats.getCompletedCount());
+        assertEquals(5L, stats.getLoggedCount());
+        assertEquals(TODAY, stats.getLastLogDate());
+        assertEquals(80.0, stats.consistencyPercentage());
+        verify(habitLogRepository, never()).findDaysByHabitId(any());
+        verify(habitStatsRepository).save(stats);
+    }
+    
+    @Test
+    void testRecordLog_UncompletingPastDayRecomputesStreaks() {
+        HabitStats stats = HabitStats.builder()
+                .habitId(1L)
+                .currentStreak(3L)
+                .streakEndDate(TODAY)
+                .longestStreak(3L)
+                .completedCount(3L)
+                .loggedCount(3L)
+                .lastLogDate(TODAY)
+                .build();
+        when(habitStatsRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(stats));
+        when(habitLogRepository.findDaysByHabitId(1L)).thenReturn(List.of(
+                day(TODAY.minusDays(2), true),
+                day(TODAY.minusDays(1), false),
+                day(TODAY, true)));
+        
+        habitStatsService.recordLog(1L, TODAY.minusDays(1), true, false);
+        
+        assertEquals(1L, stats.getCurrentStreak());
+        assertEquals(1L, stats.getLongestStreak());
+        assertEquals(2L, stats.getCompletedCount());
+        assertEquals(3L, stats.getLoggedCount());
+    }
+    
+    @Test
+    void testRecordLog_MissingStatsAreRebuilt() {
+        when(habitStatsRepository.findByIdForUpdate(1L)).thenReturn(Optional.empty());
+        when(habitLogRepository.findDaysByHabitId(1L)).thenReturn(List.of(day(TODAY, true)));
+        when(habitStatsRepository.save(any(HabitStats.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        
+        habitStatsService.recordLog(1L, TODAY, null, true);
+        
+        verify(habitStatsRepository).save(argThat(s -> s.getCompletedCount() == 1L && s.getCurrentStreak() == 1L));
+    }
+    
+    @Test
+    void testRebuildAll_ReadsEveryHistoryWithOneQuery() {
+        HabitStats stored = HabitStats.empty(1L);
+        when(habitCalendarService.getMode()).thenReturn(HabitCalendarService.Mode.OFF);
+        when(habitStatsRepository.findAllByIdForUpdate(List.of(1L, 2L))).thenReturn(List.of(stored));
+        when(habitLogRepository.findDaysByHabitIdIn(List.of(1L, 2L))).thenReturn(List.of(
+                habitDay(1L, TODAY.minusDays(1), true),
+                habitDay(1L, TODAY, true),
+                habitDay(2L, TODAY, false)));
+        
+        habitStatsService.rebuildAll(List.of(1L, 2L));
+        
+        assertEquals(2L, stored.getCurrentStreak());
+        assertEquals(2L, stored.getLoggedCount());
+        verify(habitStatsRepository).save(argThat(s -> s.getHabitId() == 2L && s.getLoggedCount() == 1L && s.getCompletedCount() == 0L));
+        verify(habitStatsRepository, never()).save(stored);
+        verify(habitLogRepository, never()).findDaysByHabitId(any());
+    }
+}
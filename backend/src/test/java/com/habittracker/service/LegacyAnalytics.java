@@ -0,0 +1,146 @@
+package com.habittracker.service;
+
+import com.habittracker.dto.AnalyticsResponse;
+import com.habittracker.dto.AnalyticsResponse.WeeklyData;
+import com.habittracker.model.Habit;
+import com.habittracker.model.HabitLog;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * The list-based analytics that {@link AnalyticsEngine} replaced, one calculation per
+ * method as {@code AnalyticsService} had them. Kept as a reference for equivalence tests
+ * and benchmarks.
+ */
+class LegacyAnalytics {
+    private final List<HabitLog> history;
+    
+    public LegacyAnalytics(List<HabitLog> history) {
+        this.history = history;
+    }
+    
+    public AnalyticsResponse getAnalytics(List<Habit> habits, List<HabitLog> allLogs) {
+        return AnalyticsResponse.builder()
+                .overallConsistency(calculateOverallConsistency(allLogs))
+                .totalStreak(calculateTotalStreak(habits))
+                .categoryStreaks(calculateCategoryStreaks(habits))
+                .categoryConsistency(calculateCategoryConsistency(habits, allLogs))
+                .weeklyTrend(calculateWeeklyTrend(allLogs))
+                .heatmapData(calculateHeatmap(allLogs))
+                .build();
+    }
+    
+    public Double calculateOverallConsistency(List<HabitLog> logs) {
+        if (logs.isEmpty()) return 0.0;
+        long completed = logs.stream().filter(HabitLog::getStatus).count();
+        return (double) completed / logs.size() * 100;
+    }
+    
+    public Long calculateTotalStreak(List<Habit> habits) {
+        return habits.stream()
+                .mapToLong(h -> calculateHabitStreak(h.getId()))
+                .max()
+                .orElse(0L);
+    }
+    
+    public long calculateHabitStreak(Long habitId) {
+        Set<LocalDate> completedDates = history.stream()
+                .filter(log -> log.getHabit().getId().equals(habitId) && log.getStatus())
+                .map(HabitLog::getDate)
+                .collect(Collectors.toSet());
+        
+        long streak = 0;
+        LocalDate currentDate = LocalDate.now();
+        while (completedDates.contains(currentDate)) {
+            streak++;
+            currentDate = currentDate.minusDays(1);
+        }
+        
+        return streak;
+    }
+    
+    public Map<String, Long> calculateCategoryStreaks(List<Habit> habits) {
+        Map<String, Long> categoryStreaks = new HashMap<>();
+        
+        Map<String, List<Habit>> habitsByCategory = habits.stream()
+                .collect(Collectors.groupingBy(Habit::getCategory));
+        
+        for (Map.Entry<String, List<Habit>> entry : habitsByCategory.entrySet()) {
+            long maxStreak = entry.getValue().stream()
+                    .mapToLong(h -> calculateHabitStreak(h.getId()))
+                    .max()
+                    .orElse(0L);
+            categoryStreaks.put(entry.getKey(), maxStreak);
+        }
+        
+        return categoryStreaks;
+    }
+    
+    public Map<String, Double> calculateCategoryConsistency(List<Habit> habits, List<HabitLog> allLogs) {
+        Map<String, Double> categoryConsistency = new HashMap<>();
+        
+        Map<String, List<Habit>> habitsByCategory = habits.stream()
+                .collect(Collectors.groupingBy(Habit::getCategory));
+        
+        for (Map.Entry<String, List<Habit>> entry : habitsByCategory.entrySet()) {
+            List<Long> habitIds = entry.getValue().stream()
+                    .map(Habit::getId)
+                    .collect(Collectors.toList());
+            
+            List<HabitLog> categoryLogs = allLogs.stream()
+                    .filter(log -> habitIds.contains(log.getHabit().getId()))
+                    .collect(Collectors.toList());
+            
+            if (!categoryLogs.isEmpty()) {
+                long completed = categoryLogs.stream().filter(HabitLog::getStatus).count();
+                double consistency = (double) completed / categoryLogs.size() * 100;
+                categoryConsistency.put(entry.getKey(), consistency);
+            } else {
+                categoryConsistency.put(entry.getKey(), 0.0);
+            }
+        }
+        
+        return categoryConsistency;
+    }
+    
+    public List<WeeklyData> calculateWeeklyTrend(List<HabitLog> logs) {
+        Map<String, List<HabitLog>> logsByWeek = logs.stream()
+                .collect(Collectors.groupingBy(log -> getWeekKey(log.getDate())));
+        
+        List<WeeklyData> weeklyData = new ArrayList<>();
+        
+        for (Map.Entry<String, List<HabitLog>> entry : logsByWeek.entrySet()) {
+            List<HabitLog> weekLogs = entry.getValue();
+            long completed = weekLogs.stream().filter(HabitLog::getStatus).count();
+            double consistency = weekLogs.isEmpty() ? 0.0 : (double) completed / weekLogs.size() * 100;
+            
+            weeklyData.add(WeeklyData.builder()
+                    .week(entry.getKey())
+                    .consistency(consistency)
+                    .completedDays((int) completed)
+                    .build());
+        }
+        
+        weeklyData.sort(Comparator.comparing(WeeklyData::getWeek));
+        return weeklyData.size() > 12 ? weeklyData.subList(weeklyData.size() - 12, weeklyData.size()) : weeklyData;
+    }
+    
+    private String getWeekKey(LocalDate date) {
+        LocalDate weekStart = date.minusDays(date.getDayOfWeek().getValue() - 1);
+        return weekStart.format(DateTimeFormatter.ofPattern("MMM dd"));
+    }
+    
+    public Map<String, Integer> calculateHeatmap(List<HabitLog> logs) {
+        Map<String, Integer> heatmap = new HashMap<>();
+        
+        for (HabitLog log : logs) {
+            String dateKey = log.getDate().toString();
+            heatmap.put(dateKey, log.getStatus() ? 1 : 0);
+        }
+        
+        return heatmap;
+    }
+}
@@ -0,0 +1,190 @@
+package com.habittracker.service;
+
+import com.habittracker.dto.HabitLogBatchRequest;
+import com.habittracker.dto.HabitRequest;
+import com.habittracker.model.User;
+import com.habittracker.repository.HabitLogDayCounts;
+import com.habittracker.repository.UserRepository;
+import com.habittracker.scheduler.UserDailySummaryRebuildJob;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the incrementally maintained {@code user_daily_summary} rows always equal
+ * a recount from {@code habit_logs}.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class UserDailySummaryTest {
+    
+    private static final int THREADS = 8;
+    private static final int WRITES_PER_THREAD = 25;
+    private static final LocalDate TODAY = LocalDate.now();
+    
+    @Autowired
+    private HabitService habitService;
+    
+    @Autowired
+    private UserDailySummaryService userDailySummaryService;
+    
+    @Autowired
+    private UserDailySummaryRebuildJob rebuildJob;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    private Long createUser() {
+        return userRepository.save(User.builder()
+                .email(UUID.randomUUID() + "@example.com")
+                .name("Test User")
+                .passwordHash("hash")
+                .build()).getId();
+    }
+    
+    private Long createHabit(Long userId, String category) {
+        HabitRequest request = new HabitRequest();
+        request.setTitle("Habit");
+        request.setCategory(category);
+        return habitService.createHabit(userId, request).getId();
+    }
+    
+    /**
+     * The user's rows as {@code date -> [logged, completed]}.
+     */
+    private Map<LocalDate, List<Long>> summary(Long userId) {
+        Map<LocalDate, List<Long>> days = new TreeMap<>();
+        for (HabitLogDayCounts day : userDailySummaryService.getDays(userId, TODAY.minusDays(365), TODAY)) {
+            days.put(day.getDate(), List.of(day.getLogged(), day.getCompleted()));
+        }
+        return days;
+    }
+    
+    private void assertMatchesRecount(Long userId) {
+        Map<LocalDate, List<Long>> maintained = summary(userId);
+        userDailySummaryService.rebuild(userId);
+        assertEquals(summary(userId), maintained);
+    }
+    
+    @Test
+    void testLogHabit_ParallelWritersAcrossHabitsKeepCountsExact() throws Exception {
+        Long userId = createUser();
+        List<Long> habitIds = List.of(createHabit(userId, "Fitness"), createHabit(userId, "Study"));
+        
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            Random random = new Random(thread);
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int write = 0; write < WRITES_PER_THREAD; write++) {
+                    habitService.logHabit(habitIds.get(random.nextInt(2)), userId,
+                            TODAY.minusDays(random.nextInt(3)), random.nextBoolean());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        
+        Map<LocalDate, List<Long>> days = summary(userId);
+        assertEquals(3, days.size());
+        days.values().forEach(counts -> assertEquals(2L, counts.get(0)));
+        assertMatchesRecount(userId);
+    }
+    
+    @Test
+    void testBatchAndDelete_KeepCountsExact() {
+        Long userId = createUser();
+        Long read = createHabit(userId, "Study");
+        Long run = createHabit(userId, "Fitness");
+        
+        habitService.logHabit(read, userId, TODAY, true);
+        List<HabitLogBatchRequest.Entry> entries = new ArrayList<>();
+        for (int day = 0; day < 5; day++) {
+            entries.add(entry(read, TODAY.minusDays(day), day % 2 == 0));
+            entries.add(entry(run, TODAY.minusDays(day), true));
+        }
+        HabitLogBatchRequest batch = new HabitLogBatchRequest();
+        batch.setEntries(entries);
+        habitService.logHabits(userId, batch);
+        
+        assertEquals(List.of(2L, 2L), summary(userId).get(TODAY));
+        assertEquals(List.of(2L, 1L), summary(userId).get(TODAY.minusDays(1)));
+        assertMatchesRecount(userId);
+        
+        habitService.deleteHabit(run, userId);
+        
+        assertEquals(List.of(1L, 1L), summary(userId).get(TODAY));
+        assertEquals(List.of(1L, 0L), summary(userId).get(TODAY.minusDays(1)));
+        assertMatchesRecount(userId);
+    }
+    
+    @Test
+    void testRebuildJob_RestoresMissingRows() throws Exception {
+        Long userId = createUser();
+        Long habitId = createHabit(userId, "Health");
+        habitService.logHabit(habitId, userId, TODAY, true);
+        habitService.logHabit(habitId, userId, TODAY.minusDays(1), false);
+        Map<LocalDate, List<Long>> expected = summary(userId);
+        
+        jdbcTemplate.update("DELETE FROM user_daily_summary WHERE user_id = ?", userId);
+        assertTrue(summary(userId).isEmpty());
+        
+        rebuildJob.rebuild(List.of(userId)).get(10, TimeUnit.SECONDS);
+        
+        assertEquals(expected, summary(userId));
+    }
+    
+    @Test
+    void testBackfill_RebuildsUsersWhoLoggedBeforeItRan() throws Exception {
+        Long userId = createUser();
+        Long habitId = createHabit(userId, "Health");
+        for (int day = 1; day <= 3; day++) {
+            jdbcTemplate.update("INSERT INTO habit_logs (habit_id, user_id, date, status) VALUES (?, ?, ?, TRUE)",
+                    habitId, userId, TODAY.minusDays(day));
+        }
+        habitService.logHabit(habitId, userId, TODAY, true);
+        assertEquals(1, summary(userId).size());
+        
+        jdbcTemplate.update("DELETE FROM job_checkpoints WHERE job_name = 'user-daily-summary-backfill'");
+        rebuildJob.backfill().get(30, TimeUnit.SECONDS);
+        
+        assertEquals(4, summary(userId).size());
+        assertMatchesRecount(userId);
+        assertEquals(Boolean.TRUE, jdbcTemplate.queryForObject(
+                "SELECT completed FROM job_checkpoints WHERE job_name = 'user-daily-summary-backfill'", Boolean.class));
+    }
+    
+    private static HabitLogBatchRequest.Entry entry(Long habitId, LocalDate date, boolean status) {
+        HabitLogBatchRequest.Entry entry = new HabitLogBatchRequest.Entry();
+        entry.setHabitId(habitId);
+        entry.setDate(date);
+        entry.setStatus(status);
+        return entry;
+    }
+}
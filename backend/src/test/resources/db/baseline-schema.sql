@@ -1,11 +1,5 @@
--- Smart Habit Tracker Database Schema
--- PostgreSQL
-
--- Create database (run this separately)
--- CREATE DATABASE habit_tracker;
-
--- Connect to database
--- \c habit_tracker;
+-- database/schema.sql from before the migrations: the schema of the databases Flyway
+-- baselines at version 2 (SchemaBaselineTest)
 
 -- Users table
 CREATE TABLE IF NOT EXISTS users (
@@ -50,8 +44,3 @@ CREATE INDEX IF NOT EXISTS idx_habit_logs_habit_id ON habit_logs(habit_id);
 CREATE INDEX IF NOT EXISTS idx_habit_logs_date ON habit_logs(date);
 CREATE INDEX IF NOT EXISTS idx_ai_reports_user_id ON ai_reports(user_id);
 CREATE INDEX IF NOT EXISTS idx_ai_reports_created_at ON ai_reports(created_at DESC);
-
--- Sample data (optional, for testing)
--- INSERT INTO users (email, name, password_hash) VALUES 
--- ('demo@example.com', 'Demo User', '$2a$10$example_hash_here');
-
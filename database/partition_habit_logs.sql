@@ -0,0 +1,49 @@
+-- Converts an existing unpartitioned habit_logs table, as left by migration V3 on a
+-- database baselined from before the migrations, to the partitioned layout of
+-- backend/src/main/resources/db/migration/postgresql, with one partition per month that
+-- has logs. Run once, with the application stopped; it takes an exclusive lock on
+-- habit_logs for the copy.
+
+BEGIN;
+
+ALTER TABLE habit_logs RENAME TO habit_logs_unpartitioned;
+ALTER SEQUENCE habit_logs_id_seq OWNED BY NONE;
+
+CREATE TABLE habit_logs (
+    id BIGINT NOT NULL DEFAULT nextval('habit_logs_id_seq'),
+    habit_id BIGINT NOT NULL REFERENCES habits(id) ON DELETE CASCADE,
+    date DATE NOT NULL,
+    status BOOLEAN NOT NULL,
+    user_id BIGINT NOT NULL,
+    PRIMARY KEY (id, date)
+) PARTITION BY RANGE (date);
+ALTER SEQUENCE habit_logs_id_seq OWNED BY habit_logs.id;
+
+CREATE TABLE habit_logs_archive PARTITION OF habit_logs FOR VALUES FROM (MINVALUE) TO ('2000-01-01');
+CREATE TABLE habit_logs_default PARTITION OF habit_logs DEFAULT;
+
+DO $$
+DECLARE
+    month DATE;
+BEGIN
+    FOR month IN
+        SELECT DISTINCT date_trunc('month', date)::date FROM habit_logs_unpartitioned
+        WHERE date >= DATE '2000-01-01' ORDER BY 1
+    LOOP
+        EXECUTE format('CREATE TABLE habit_logs_p%s PARTITION OF habit_logs FOR VALUES FROM (%L) TO (%L)',
+                       to_char(month, 'YYYYMM'), month, (month + INTERVAL '1 month')::date);
+    END LOOP;
+END $$;
+
+INSERT INTO habit_logs (id, habit_id, date, status, user_id)
+SELECT id, habit_id, date, status, user_id FROM habit_logs_unpartitioned;
+
+-- Dropping the old table frees its constraint and index names
+DROP TABLE habit_logs_unpartitioned;
+
+ALTER TABLE habit_logs ADD CONSTRAINT fk_habit_logs_user
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE;
+ALTER TABLE habit_logs ADD CONSTRAINT uk_habit_logs_habit_date UNIQUE (habit_id, date) INCLUDE (status);
+CREATE INDEX idx_habit_logs_user_date ON habit_logs (user_id, date) INCLUDE (habit_id, status);
+
+COMMIT;
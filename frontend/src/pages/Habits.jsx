@@ -21,11 +21,14 @@ const Habits = () => {
       const data = await getHabits()
       setHabits(data)
       
-      // Load logs for each habit
+      // Load this month's logs for each habit
+      const today = new Date()
+      const from = format(startOfMonth(today), 'yyyy-MM-dd')
+      const to = format(endOfMonth(today), 'yyyy-MM-dd')
       const logsMap = {}
       for (const habit of data) {
         try {
-          const logs = await getHabitLogs(habit.id)
+          const logs = await getHabitLogs(habit.id, from, to)
           logsMap[habit.id] = logs
         } catch (error) {
           logsMap[habit.id] = []
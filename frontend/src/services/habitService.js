@@ -23,8 +23,8 @@ export const logHabit = async (habitId, date, status) => {
   await api.post(`/habits/${habitId}/logs`, { date, status })
 }
 
-export const getHabitLogs = async (habitId) => {
-  const response = await api.get(`/habits/${habitId}/logs`)
-  return response.data
+export const getHabitLogs = async (habitId, from, to) => {
+  const response = await api.get(`/habits/${habitId}/logs`, { params: { from, to } })
+  return response.data.logs
 }
 